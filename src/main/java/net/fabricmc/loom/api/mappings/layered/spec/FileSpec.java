@@ -124,4 +124,19 @@ public interface FileSpec {
 	}
 
 	Path get(MappingContext context);
+
+	/**
+	 * Returns a key that identifies the contents of the file, used in place of the spec when hashing the layered mappings.
+	 * It must be the same in every build and on every machine for the same contents.
+	 *
+	 * <p>Defaults to the hash code, which is only stable when the implementation overrides it to be.
+	 *
+	 * <p>The key is needed when the layered mappings dependency is declared, before anything is resolved. Maven and
+	 * dependency specs are therefore keyed by their notation and not by the resolved file, so a changing or -SNAPSHOT
+	 * dependency keeps using the mappings that were built from the first version that was resolved. Use a fixed version,
+	 * or refresh the dependencies, to pick up a new one.
+	 */
+	default String getCacheKey() {
+		return getClass().getName() + "@" + hashCode();
+	}
 }
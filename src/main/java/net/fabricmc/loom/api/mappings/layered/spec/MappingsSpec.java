@@ -32,7 +32,8 @@ import net.fabricmc.loom.api.mappings.layered.MappingLayer;
 /**
  * A MappingsSpec is an immutable set of data used to create the MappingLayer.
  *
- * <p>The hashCode is used to generate a hash of the full layered mapping spec, used to cache.
+ * <p>The components of record specs are used to generate a hash of the full layered mapping spec, used to cache. Any
+ * {@link FileSpec} is hashed by its {@link FileSpec#getCacheKey()}, specs that are not records are hashed by their hashCode.
  *
  * <p>Commonly implemented as a record
  */
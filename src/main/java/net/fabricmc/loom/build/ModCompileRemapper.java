@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import com.google.common.io.Files;
@@ -42,7 +43,6 @@ import org.gradle.api.artifacts.query.ArtifactResolutionQuery;
 import org.gradle.api.artifacts.result.ArtifactResult;
 import org.gradle.api.artifacts.result.ComponentArtifactsResult;
 import org.gradle.api.artifacts.result.ResolvedArtifactResult;
-import org.gradle.api.file.FileCollection;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.jvm.JvmLibrary;
@@ -52,12 +52,12 @@ import org.jetbrains.annotations.Nullable;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 import net.fabricmc.loom.configuration.mods.ModProcessor;
 import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
 import net.fabricmc.loom.configuration.processors.dependency.RemapData;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.ModUtils;
 import net.fabricmc.loom.util.OperatingSystem;
 import net.fabricmc.loom.util.SourceRemapper;
 
@@ -78,6 +78,7 @@ public class ModCompileRemapper {
 
 		final File modStore = extension.getFiles().getRemappedModCache();
 		final RemapData remapData = new RemapData(mappingsSuffix, modStore);
+		final ModMetadataService metadataService = ModMetadataService.getInstance(project);
 
 		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
 			extension.getLazyConfigurationProvider(entry.getRemappedConfiguration()).configure(remappedConfig -> {
@@ -85,18 +86,22 @@ public class ModCompileRemapper {
 				Configuration regularConfig = project.getConfigurations().getByName(entry.getTargetConfiguration(project.getConfigurations()));
 
 				List<ModDependencyInfo> modDependencies = new ArrayList<>();
+				Set<ResolvedArtifact> resolvedArtifacts = sourceConfig.getResolvedConfiguration().getResolvedArtifacts();
 
-				for (ResolvedArtifact artifact : sourceConfig.getResolvedConfiguration().getResolvedArtifacts()) {
+				// Read all the mod metadata up front in parallel
+				metadataService.prefetch(resolvedArtifacts.stream().map(ResolvedArtifact::getFile).toList());
+
+				for (ResolvedArtifact artifact : resolvedArtifacts) {
 					String group = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getGroup(), () -> MISSING_GROUP);
 					String name = artifact.getModuleVersion().getId().getName();
 					String version = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getVersion(), () -> Checksum.truncatedSha256(artifact.getFile()));
 
-					if (!ModUtils.isMod(artifact.getFile())) {
+					if (!metadataService.isMod(artifact.getFile())) {
 						addToRegularCompile(project, regularConfig, artifact);
 						continue;
 					}
 
-					ModDependencyInfo info = new ModDependencyInfo(group, name, version, artifact.getClassifier(), artifact.getFile(), remappedConfig, remapData);
+					ModDependencyInfo info = new ModDependencyInfo(group, name, version, artifact.getClassifier(), artifact.getFile(), remappedConfig, remapData, metadataService);
 					modDependencies.add(info);
 
 					File remappedSources = info.getRemappedOutput("sources");
@@ -114,11 +119,12 @@ public class ModCompileRemapper {
 				// so we have to "resolve" it on our own. The naming is "abc.jar" => "unspecified:abc:unspecified".
 				for (FileCollectionDependency dependency : sourceConfig.getAllDependencies().withType(FileCollectionDependency.class)) {
 					String group = replaceIfNullOrEmpty(dependency.getGroup(), () -> MISSING_GROUP);
-					FileCollection files = dependency.getFiles();
+					Set<File> files = dependency.getFiles().getFiles();
+					metadataService.prefetch(files);
 
 					// Create a mod dependency for each file in the file collection
 					for (File artifact : files) {
-						if (!ModUtils.isMod(artifact)) {
+						if (!metadataService.isMod(artifact)) {
 							dependencies.add(regularConfig.getName(), project.files(artifact));
 							continue;
 						}
@@ -126,7 +132,7 @@ public class ModCompileRemapper {
 						String name = Files.getNameWithoutExtension(artifact.getAbsolutePath());
 						String version = replaceIfNullOrEmpty(dependency.getVersion(), () -> Checksum.truncatedSha256(artifact));
 
-						ModDependencyInfo info = new ModDependencyInfo(group, name, version, null, artifact, remappedConfig, remapData);
+						ModDependencyInfo info = new ModDependencyInfo(group, name, version, null, artifact, remappedConfig, remapData, metadataService);
 						modDependencies.add(info);
 					}
 				}
@@ -52,8 +52,8 @@ import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 import net.fabricmc.loom.task.RemapTaskConfiguration;
-import net.fabricmc.loom.util.ModUtils;
 import net.fabricmc.loom.util.ZipUtils;
 
 public final class IncludedJarFactory {
@@ -143,7 +143,7 @@ public final class IncludedJarFactory {
 	}
 
 	private File getNestableJar(final File input, final Metadata metadata) {
-		if (ModUtils.isMod(input)) {
+		if (ModMetadataService.getInstance(project).isMod(input)) {
 			// Input is a mod, nothing needs to be done.
 			return input;
 		}
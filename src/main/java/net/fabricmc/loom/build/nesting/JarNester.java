@@ -27,22 +27,27 @@ package net.fabricmc.loom.build.nesting;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import org.gradle.api.UncheckedIOException;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import net.fabricmc.loom.util.ModUtils;
 import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+import net.fabricmc.loom.util.zip.ZipOutputConsumer;
 
 public class JarNester {
+	private static final String MOD_JSON = "fabric.mod.json";
+
 	public static void nestJars(Collection<File> jars, File modJar, Logger logger) {
 		if (jars.isEmpty()) {
 			logger.debug("Nothing to nest into " + modJar.getName());
@@ -52,48 +57,90 @@ public class JarNester {
 		Preconditions.checkArgument(ModUtils.isMod(modJar), "Cannot nest jars into none mod jar " + modJar.getName());
 
 		try {
-			ZipUtils.add(modJar.toPath(), jars.stream().map(file -> {
-				try {
-					return new Pair<>("META-INF/jars/" + file.getName(), Files.readAllBytes(file.toPath()));
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
-				}
-			}).collect(Collectors.toList()));
+			// Add the jars and update the fabric.mod.json in a single rewrite of the mod jar
+			int count = ZipUtils.rewrite(modJar.toPath(), Map.of(MOD_JSON, createModJsonTransformer(jars, modJar, null, logger)), readNestedJars(jars));
 
-			int count = ZipUtils.transformJson(JsonObject.class, modJar.toPath(), Stream.of(new Pair<>("fabric.mod.json", json -> {
-				JsonArray nestedJars = json.getAsJsonArray("jars");
+			Preconditions.checkState(count > 0, "Failed to transform fabric.mod.json");
+		} catch (IOException e) {
+			throw new java.io.UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
+		}
+	}
 
-				if (nestedJars == null || !json.has("jars")) {
-					nestedJars = new JsonArray();
-				}
+	/**
+	 * Nests the jars into a mod jar that is being written by the given {@link ZipOutputConsumer}.
+	 *
+	 * <p>The transform is only applied once the fabric.mod.json is copied from the input, use {@link #didNestJars(ZipOutputConsumer)} to check that it has been after closing the output.
+	 *
+	 * @param modJar the input mod jar, used to check that it is a mod
+	 * @param cache the cache used to read the central directories of the mod jar and the nested jars, or null to always read them from the files
+	 */
+	public static void nestJars(Collection<File> jars, File modJar, ZipOutputConsumer output, @Nullable CentralDirectoryCache cache, Logger logger) {
+		if (jars.isEmpty()) {
+			logger.debug("Nothing to nest into " + modJar.getName());
+			return;
+		}
 
-				for (File file : jars) {
-					String nestedJarPath = "META-INF/jars/" + file.getName();
-					Preconditions.checkArgument(ModUtils.isMod(file), "Cannot nest none mod jar: " + file.getName());
+		Preconditions.checkArgument(ModUtils.isMod(modJar, cache), "Cannot nest jars into none mod jar " + modJar.getName());
 
-					for (JsonElement nestedJar : nestedJars) {
-						JsonObject jsonObject = nestedJar.getAsJsonObject();
+		try {
+			for (Pair<String, byte[]> nestedJar : readNestedJars(jars)) {
+				output.add(nestedJar.left(), nestedJar.right());
+			}
+		} catch (IOException e) {
+			throw new java.io.UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
+		}
 
-						if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
-							throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
-						}
-					}
+		output.transform(MOD_JSON, createModJsonTransformer(jars, modJar, cache, logger));
+	}
 
-					JsonObject jsonObject = new JsonObject();
-					jsonObject.addProperty("file", nestedJarPath);
-					nestedJars.add(jsonObject);
+	public static boolean didNestJars(ZipOutputConsumer output) {
+		return output.wasTransformed(MOD_JSON);
+	}
+
+	private static List<Pair<String, byte[]>> readNestedJars(Collection<File> jars) throws IOException {
+		List<Pair<String, byte[]>> nestedJars = new ArrayList<>(jars.size());
+
+		for (File file : jars) {
+			nestedJars.add(new Pair<>(getNestedJarPath(file), Files.readAllBytes(file.toPath())));
+		}
+
+		return nestedJars;
+	}
+
+	private static ZipUtils.UnsafeUnaryOperator<byte[]> createModJsonTransformer(Collection<File> jars, File modJar, @Nullable CentralDirectoryCache cache, Logger logger) {
+		return ZipUtils.jsonTransformer(JsonObject.class, json -> {
+			JsonArray nestedJars = json.getAsJsonArray("jars");
+
+			if (nestedJars == null || !json.has("jars")) {
+				nestedJars = new JsonArray();
+			}
+
+			for (File file : jars) {
+				String nestedJarPath = getNestedJarPath(file);
+				Preconditions.checkArgument(ModUtils.isMod(file, cache), "Cannot nest none mod jar: " + file.getName());
 
-					logger.debug("Nested " + nestedJarPath + " into " + modJar.getName());
+				for (JsonElement nestedJar : nestedJars) {
+					JsonObject jsonObject = nestedJar.getAsJsonObject();
+
+					if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
+						throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
+					}
 				}
 
-				json.add("jars", nestedJars);
+				JsonObject jsonObject = new JsonObject();
+				jsonObject.addProperty("file", nestedJarPath);
+				nestedJars.add(jsonObject);
 
-				return json;
-			})));
+				logger.debug("Nested " + nestedJarPath + " into " + modJar.getName());
+			}
 
-			Preconditions.checkState(count > 0, "Failed to transform fabric.mod.json");
-		} catch (IOException e) {
-			throw new java.io.UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
-		}
+			json.add("jars", nestedJars);
+
+			return json;
+		});
+	}
+
+	private static String getNestedJarPath(File file) {
+		return "META-INF/jars/" + file.getName();
 	}
 }
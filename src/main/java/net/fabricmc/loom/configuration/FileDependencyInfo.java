@@ -45,6 +45,8 @@ import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.SelfResolvingDependency;
 
 import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
 
 public class FileDependencyInfo extends DependencyInfo {
 	protected final Map<String, File> classifierToFile = new HashMap<>();
@@ -100,7 +102,7 @@ public class FileDependencyInfo extends DependencyInfo {
 			byte[] modJson;
 
 			try {
-				if ("jar".equals(FilenameUtils.getExtension(root.getName())) && (modJson = ZipUtils.unpackNullable(root.toPath(), "fabric.mod.json")) != null) {
+				if ("jar".equals(FilenameUtils.getExtension(root.getName())) && (modJson = ZipUtils.unpackNullable(root.toPath(), "fabric.mod.json", CentralDirectoryCache.getInstance(SharedServiceManager.get(project)))) != null) {
 					//It's a Fabric mod, see how much we can extract out
 					JsonObject json = new Gson().fromJson(new String(modJson, StandardCharsets.UTF_8), JsonObject.class);
 
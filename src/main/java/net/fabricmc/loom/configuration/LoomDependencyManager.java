@@ -25,9 +25,6 @@
 package net.fabricmc.loom.configuration;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,13 +36,12 @@ import org.gradle.api.artifacts.ExternalModuleDependency;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 
 import net.fabricmc.loom.LoomGradleExtension;
-import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.LoomRepositoryPlugin;
 import net.fabricmc.loom.build.ModCompileRemapper;
 import net.fabricmc.loom.configuration.ide.idea.IdeaUtils;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.SourceRemapper;
-import net.fabricmc.loom.util.ZipUtils;
 
 public class LoomDependencyManager {
 	public void handleDependencies(Project project) {
@@ -61,7 +57,7 @@ public class LoomDependencyManager {
 
 			for (Dependency dependency : configuration.getAllDependencies()) {
 				for (File input : configuration.files(dependency)) {
-					JsonObject jsonObject = readInstallerJson(input);
+					JsonObject jsonObject = ModMetadataService.getInstance(project).readInstallerJson(input);
 
 					if (jsonObject != null) {
 						if (extension.getInstallerData() != null) {
@@ -93,20 +89,6 @@ public class LoomDependencyManager {
 		}
 	}
 
-	public static JsonObject readInstallerJson(File file) {
-		try {
-			byte[] bytes = ZipUtils.unpackNullable(file.toPath(), "fabric-installer.json");
-
-			if (bytes == null) {
-				return null;
-			}
-
-			return LoomGradlePlugin.GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to try and read installer json from", e);
-		}
-	}
-
 	private static void handleInstallerJson(JsonObject jsonObject, Project project) {
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
 
@@ -26,15 +26,15 @@ package net.fabricmc.loom.configuration.accesswidener;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Objects;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
 
-import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.configuration.mods.ModMetadata;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
 
 public record AccessWidenerFile(
 		String path,
@@ -44,39 +44,41 @@ public record AccessWidenerFile(
 	/**
 	 * Reads the access-widener contained in a mod jar, or returns null if there is none.
 	 */
-	public static AccessWidenerFile fromModJar(Path modJarPath) {
-		byte[] modJsonBytes;
+	public static AccessWidenerFile fromModJar(Path modJarPath, @Nullable CentralDirectoryCache cache) {
+		final ModMetadata metadata;
 
 		try {
-			modJsonBytes = ZipUtils.unpackNullable(modJarPath, "fabric.mod.json");
+			metadata = ModMetadata.read(modJarPath, cache);
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read access-widener file from: " + modJarPath.toAbsolutePath(), e);
 		}
 
-		if (modJsonBytes == null) {
-			return null;
-		}
+		return fromModMetadata(metadata, modJarPath, cache);
+	}
 
-		JsonObject jsonObject = new Gson().fromJson(new String(modJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
+	/**
+	 * Returns the access-widener from the metadata of a mod jar, or null if there is none.
+	 */
+	public static AccessWidenerFile fromModMetadata(ModMetadata metadata, Path modJarPath, @Nullable CentralDirectoryCache cache) {
+		String awPath = metadata.accessWidenerPath();
 
-		if (!jsonObject.has("accessWidener")) {
+		if (awPath == null) {
 			return null;
 		}
 
-		String awPath = jsonObject.get("accessWidener").getAsString();
-		String modId = jsonObject.get("id").getAsString();
-
 		byte[] content;
 
 		try {
-			content = ZipUtils.unpack(modJarPath, awPath);
-		} catch (IOException e) {
+			content = metadata.readAccessWidener(modJarPath, cache);
+		} catch (NoSuchFileException e) {
 			throw new UncheckedIOException("Could not find access widener file (%s) defined in the fabric.mod.json file of %s".formatted(awPath, modJarPath.toAbsolutePath()), e);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read access-widener file from: " + modJarPath.toAbsolutePath(), e);
 		}
 
 		return new AccessWidenerFile(
 				awPath,
-				modId,
+				metadata.modId(),
 				content
 		);
 	}
@@ -25,7 +25,6 @@
 package net.fabricmc.loom.configuration.accesswidener;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,10 +47,10 @@ import net.fabricmc.accesswidener.TransitiveOnlyFilter;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 import net.fabricmc.loom.configuration.processors.JarProcessor;
+import net.fabricmc.loom.task.service.RemapperEnvironmentService;
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.TinyRemapperHelper;
-import net.fabricmc.tinyremapper.TinyRemapper;
 
 /**
  * Applies transitive access wideners that are inherited from mod and api dependencies.
@@ -112,13 +111,16 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 			}
 		}
 
+		final ModMetadataService metadataService = ModMetadataService.getInstance(project);
+		metadataService.prefetch(possibleModJars.stream().map(Path::toFile).toList());
+
 		for (Path path : possibleModJars) {
 			if (!Files.exists(path)) {
 				project.getLogger().debug("Could not find transitive access widener in {} as it does not exist", path.toAbsolutePath());
 				continue;
 			}
 
-			AccessWidenerFile accessWidener = AccessWidenerFile.fromModJar(path);
+			AccessWidenerFile accessWidener = AccessWidenerFile.fromModMetadata(metadataService.get(path), path, metadataService.getCentralDirectoryCache());
 
 			if (accessWidener == null) {
 				continue;
@@ -147,44 +149,22 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 	private AccessWidener createAccessWidener() {
 		AccessWidener accessWidener = new AccessWidener();
 		// For other mods, only consider transitive AWs and remap from intermediary->named
-		TinyRemapper tinyRemapper = createTinyRemapper();
-
-		try {
-			AccessWidenerRemapper remappingVisitor = new AccessWidenerRemapper(
-					accessWidener,
-					tinyRemapper.getEnvironment().getRemapper(),
-					MappingsNamespace.INTERMEDIARY.toString(),
-					MappingsNamespace.NAMED.toString()
-			);
-			AccessWidenerReader transitiveReader = new AccessWidenerReader(new TransitiveOnlyFilter(remappingVisitor));
-
-			for (AccessWidenerFile accessWidenerFile : transitiveAccessWideners) {
-				project.getLogger().info("Reading transitive access widener from {}", accessWidenerFile.modId());
-				transitiveReader.read(accessWidenerFile.content());
-			}
-		} finally {
-			tinyRemapper.finish();
+		AccessWidenerRemapper remappingVisitor = new AccessWidenerRemapper(
+				accessWidener,
+				RemapperEnvironmentService.getOrCreate(project, "intermediary", "named").getMappingRemapper(),
+				MappingsNamespace.INTERMEDIARY.toString(),
+				MappingsNamespace.NAMED.toString()
+		);
+		AccessWidenerReader transitiveReader = new AccessWidenerReader(new TransitiveOnlyFilter(remappingVisitor));
+
+		for (AccessWidenerFile accessWidenerFile : transitiveAccessWideners) {
+			project.getLogger().info("Reading transitive access widener from {}", accessWidenerFile.modId());
+			transitiveReader.read(accessWidenerFile.content());
 		}
 
 		return accessWidener;
 	}
 
-	private TinyRemapper createTinyRemapper() {
-		try {
-			TinyRemapper tinyRemapper = TinyRemapperHelper.getTinyRemapper(project, "intermediary", "named");
-
-			tinyRemapper.readClassPath(TinyRemapperHelper.getMinecraftDependencies(project));
-
-			for (Path minecraftJar : extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY)) {
-				tinyRemapper.readClassPath(minecraftJar);
-			}
-
-			return tinyRemapper;
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to create tiny remapper for intermediary->named", e);
-		}
-	}
-
 	private static class TransitiveDetectorVisitor implements AccessWidenerVisitor {
 		private boolean transitive = false;
 
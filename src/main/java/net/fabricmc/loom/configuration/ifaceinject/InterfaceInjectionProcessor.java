@@ -29,7 +29,6 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -57,16 +56,17 @@ import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.api.InterfaceInjectionExtensionAPI;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
+import net.fabricmc.loom.configuration.mods.ModMetadata;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 import net.fabricmc.loom.configuration.processors.JarProcessor;
 import net.fabricmc.loom.task.GenerateSourcesTask;
+import net.fabricmc.loom.task.service.RemapperEnvironmentService;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.Pair;
-import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
-import net.fabricmc.tinyremapper.TinyRemapper;
 
 public class InterfaceInjectionProcessor implements JarProcessor, GenerateSourcesTask.MappingsProcessor {
 	// Filename used to store hash of injected interfaces in processed jar file
@@ -107,28 +107,22 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 	public void process(File jarFile) {
 		// Lazily remap from intermediary->named
 		if (remappedInjectedInterfaces == null) {
-			TinyRemapper tinyRemapper = createTinyRemapper();
-			Remapper remapper = tinyRemapper.getEnvironment().getRemapper();
-
-			try {
-				remappedInjectedInterfaces = new HashMap<>(injectedInterfaces.size());
-
-				for (Map.Entry<String, List<InjectedInterface>> entry : injectedInterfaces.entrySet()) {
-					String namedClassName = remapper.map(entry.getKey());
-					remappedInjectedInterfaces.put(
-							namedClassName,
-							entry.getValue().stream()
-									.map(injectedInterface ->
-											new InjectedInterface(
-													injectedInterface.modId(),
-													namedClassName,
-													remapper.map(injectedInterface.ifaceName())
-											))
-									.toList()
-					);
-				}
-			} finally {
-				tinyRemapper.finish();
+			Remapper remapper = RemapperEnvironmentService.getOrCreate(project, "intermediary", "named").getMappingRemapper();
+			remappedInjectedInterfaces = new HashMap<>(injectedInterfaces.size());
+
+			for (Map.Entry<String, List<InjectedInterface>> entry : injectedInterfaces.entrySet()) {
+				String namedClassName = remapper.map(entry.getKey());
+				remappedInjectedInterfaces.put(
+						namedClassName,
+						entry.getValue().stream()
+								.map(injectedInterface ->
+										new InjectedInterface(
+												injectedInterface.modId(),
+												namedClassName,
+												remapper.map(injectedInterface.ifaceName())
+										))
+								.toList()
+				);
 			}
 		}
 
@@ -180,6 +174,7 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 
 	private List<InjectedInterface> getDependencyInjectedInterfaces() {
 		List<InjectedInterface> result = new ArrayList<>();
+		ModMetadataService metadataService = ModMetadataService.getInstance(project);
 
 		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
 			// Only apply injected interfaces from mods that are part of the compile classpath
@@ -190,9 +185,10 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 			Set<File> artifacts = extension.getLazyConfigurationProvider(entry.sourceConfiguration())
 					.get()
 					.resolve();
+			metadataService.prefetch(artifacts);
 
 			for (File artifact : artifacts) {
-				result.addAll(InjectedInterface.fromModJar(artifact.toPath()));
+				result.addAll(InjectedInterface.fromModMetadata(metadataService.get(artifact)));
 			}
 		}
 
@@ -270,24 +266,18 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 
 	private record InjectedInterface(String modId, String className, String ifaceName) {
 		/**
-		 * Reads the injected interfaces contained in a mod jar, or returns null if there is none.
+		 * Returns the injected interfaces declared by a mod jar.
 		 */
-		public static List<InjectedInterface> fromModJar(Path modJarPath) {
-			final byte[] modJsonBytes;
-
-			try {
-				modJsonBytes = ZipUtils.unpackNullable(modJarPath, "fabric.mod.json");
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to extract fabric.mod.json from " + modJarPath);
-			}
-
-			if (modJsonBytes == null) {
-				return Collections.emptyList();
-			}
+		public static List<InjectedInterface> fromModMetadata(ModMetadata metadata) {
+			final List<InjectedInterface> result = new ArrayList<>();
 
-			final JsonObject jsonObject = LoomGradlePlugin.GSON.fromJson(new String(modJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
+			metadata.injectedInterfaces().forEach((className, ifaceNames) -> {
+				for (String ifaceName : ifaceNames) {
+					result.add(new InjectedInterface(metadata.modId(), className, ifaceName));
+				}
+			});
 
-			return fromJson(jsonObject);
+			return result;
 		}
 
 		public static List<InjectedInterface> fromJson(JsonObject jsonObject) {
@@ -355,21 +345,6 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 		}
 	}
 
-	private TinyRemapper createTinyRemapper() {
-		try {
-			TinyRemapper tinyRemapper = TinyRemapperHelper.getTinyRemapper(project, "intermediary", "named");
-			tinyRemapper.readClassPath(TinyRemapperHelper.getMinecraftDependencies(project));
-
-			for (Path minecraftJar : extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY)) {
-				tinyRemapper.readClassPath(minecraftJar);
-			}
-
-			return tinyRemapper;
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to create tiny remapper for intermediary->named", e);
-		}
-	}
-
 	private byte[] hashInjectedInterfaces() {
 		// Hash the interfaces we're about to inject to not have to repeat this everytime
 		Hasher hasher = Hashing.sha256().newHasher();
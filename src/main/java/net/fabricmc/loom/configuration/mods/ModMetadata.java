@@ -0,0 +1,155 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+import net.fabricmc.loom.util.zip.RawZipFile;
+
+/**
+ * The facts about a jar's fabric.mod.json (and fabric-installer.json) that loom needs, read with a single open of the jar.
+ *
+ * <p>Only small values are kept so that the metadata of every mod on the classpath can be indexed, the access widener
+ * and the installer json are read from the jar again when they are needed.
+ *
+ * @param mod true when the jar contains a fabric.mod.json
+ * @param modId the mod id, or null when not a mod
+ * @param accessWidenerPath the path of the access widener declared in the fabric.mod.json, or null if there is none
+ * @param accessWidenerNamespace the namespace in the header of the access widener, or null if there is none or it is missing from the jar
+ * @param injectedInterfaces the interfaces to inject, keyed by the target class name
+ * @param hasInstallerJson true when the jar contains a fabric-installer.json
+ */
+public record ModMetadata(boolean mod, @Nullable String modId, @Nullable String accessWidenerPath, @Nullable String accessWidenerNamespace,
+							Map<String, List<String>> injectedInterfaces, boolean hasInstallerJson) {
+	private static final String FABRIC_MOD_JSON = "fabric.mod.json";
+	private static final String INSTALLER_JSON = "fabric-installer.json";
+
+	public ModMetadata {
+		injectedInterfaces = Collections.unmodifiableMap(new LinkedHashMap<>(injectedInterfaces));
+	}
+
+	public static ModMetadata read(Path jar) throws IOException {
+		return read(jar, null);
+	}
+
+	public static ModMetadata read(Path jar, @Nullable CentralDirectoryCache centralDirectoryCache) throws IOException {
+		try (RawZipFile zipFile = RawZipFile.open(jar, centralDirectoryCache)) {
+			final boolean hasInstallerJson = zipFile.contains(INSTALLER_JSON);
+
+			if (!zipFile.contains(FABRIC_MOD_JSON)) {
+				return new ModMetadata(false, null, null, null, Collections.emptyMap(), hasInstallerJson);
+			}
+
+			final JsonObject jsonObject = LoomGradlePlugin.GSON.fromJson(new String(zipFile.readAllBytes(FABRIC_MOD_JSON), StandardCharsets.UTF_8), JsonObject.class);
+			final String modId = jsonObject.has("id") ? jsonObject.get("id").getAsString() : null;
+			String accessWidenerPath = null;
+			String accessWidenerNamespace = null;
+
+			if (jsonObject.has("accessWidener")) {
+				accessWidenerPath = jsonObject.get("accessWidener").getAsString();
+
+				if (zipFile.contains(accessWidenerPath)) {
+					accessWidenerNamespace = AccessWidenerReader.readHeader(zipFile.readAllBytes(accessWidenerPath)).getNamespace();
+				}
+			}
+
+			return new ModMetadata(true, modId, accessWidenerPath, accessWidenerNamespace, readInjectedInterfaces(jsonObject), hasInstallerJson);
+		}
+	}
+
+	private static Map<String, List<String>> readInjectedInterfaces(JsonObject jsonObject) {
+		if (!jsonObject.has("custom")) {
+			return Collections.emptyMap();
+		}
+
+		final JsonObject custom = jsonObject.getAsJsonObject("custom");
+
+		if (!custom.has("loom:injected_interfaces")) {
+			return Collections.emptyMap();
+		}
+
+		final JsonObject addedIfaces = custom.getAsJsonObject("loom:injected_interfaces");
+		final Map<String, List<String>> result = new LinkedHashMap<>();
+
+		for (String className : addedIfaces.keySet()) {
+			final List<String> ifaceNames = new ArrayList<>();
+
+			for (JsonElement ifaceName : addedIfaces.getAsJsonArray(className)) {
+				ifaceNames.add(ifaceName.getAsString());
+			}
+
+			result.put(className, Collections.unmodifiableList(ifaceNames));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads the access widener from the jar that this metadata was read from.
+	 *
+	 * @return the contents of the access widener, or null if there is none
+	 * @throws NoSuchFileException if the access widener is declared but missing from the jar
+	 */
+	public byte @Nullable [] readAccessWidener(Path jar, @Nullable CentralDirectoryCache centralDirectoryCache) throws IOException {
+		if (accessWidenerPath == null) {
+			return null;
+		}
+
+		try (RawZipFile zipFile = RawZipFile.open(jar, centralDirectoryCache)) {
+			return zipFile.readAllBytes(accessWidenerPath);
+		}
+	}
+
+	/**
+	 * Reads the fabric-installer.json from the jar that this metadata was read from.
+	 *
+	 * @return the installer json, or null if there is none
+	 */
+	@Nullable
+	public JsonObject readInstallerJson(Path jar, @Nullable CentralDirectoryCache centralDirectoryCache) throws IOException {
+		if (!hasInstallerJson) {
+			return null;
+		}
+
+		try (RawZipFile zipFile = RawZipFile.open(jar, centralDirectoryCache)) {
+			return LoomGradlePlugin.GSON.fromJson(new String(zipFile.readAllBytes(INSTALLER_JSON), StandardCharsets.UTF_8), JsonObject.class);
+		}
+	}
+}
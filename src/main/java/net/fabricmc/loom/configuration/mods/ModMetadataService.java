@@ -0,0 +1,240 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.gson.JsonObject;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.service.SharedService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+
+/**
+ * Reads the {@link ModMetadata} of each jar once per build, shared between all projects.
+ *
+ * <p>A jar is read again when its size, last modified time or file key changes.
+ *
+ * <p>The metadata is also kept in an index file in the user cache, so that jars that have not changed since a previous
+ * build are not opened at all.
+ */
+public final class ModMetadataService implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ModMetadataService.class);
+	private static final TypeReference<Map<String, IndexEntry>> INDEX_TYPE = new TypeReference<>() { };
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+	private final CentralDirectoryCache centralDirectoryCache;
+	@Nullable
+	private final Path indexFile;
+	private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+	private volatile boolean dirty = false;
+
+	private ModMetadataService(CentralDirectoryCache centralDirectoryCache, @Nullable Path indexFile) {
+		this.centralDirectoryCache = centralDirectoryCache;
+		this.indexFile = indexFile;
+
+		if (indexFile != null && !LoomGradlePlugin.refreshDeps) {
+			index.putAll(readIndex(indexFile));
+		}
+	}
+
+	public static ModMetadataService getInstance(Project project) {
+		final Path indexFile = LoomGradleExtension.get(project).getFiles().getUserCache().toPath().resolve("mod_metadata_index_v2.json");
+		final SharedServiceManager sharedServiceManager = SharedServiceManager.get(project);
+		final CentralDirectoryCache centralDirectoryCache = CentralDirectoryCache.getInstance(sharedServiceManager);
+		return sharedServiceManager.getOrCreateService("ModMetadataService", () -> new ModMetadataService(centralDirectoryCache, indexFile));
+	}
+
+	public ModMetadata get(File jar) {
+		return get(jar.toPath());
+	}
+
+	public ModMetadata get(Path jar) {
+		try {
+			return getEntry(jar, false).metadata().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException;
+			}
+
+			throw e;
+		}
+	}
+
+	public boolean isMod(File jar) {
+		return get(jar).mod();
+	}
+
+	/**
+	 * Reads the fabric-installer.json of a jar, or returns null if it does not have one.
+	 */
+	@Nullable
+	public JsonObject readInstallerJson(File jar) {
+		try {
+			return get(jar).readInstallerJson(jar.toPath(), centralDirectoryCache);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read installer json from " + jar, e);
+		}
+	}
+
+	/**
+	 * @return the cache to use when reading the access widener or installer json of a jar with the metadata from this service
+	 */
+	public CentralDirectoryCache getCentralDirectoryCache() {
+		return centralDirectoryCache;
+	}
+
+	/**
+	 * Starts reading the metadata of all the given jars in parallel, so that later calls to {@link #get(Path)} do not have to wait.
+	 */
+	public void prefetch(Collection<File> jars) {
+		for (File jar : jars) {
+			if (jar.isFile()) {
+				getEntry(jar.toPath(), true);
+			}
+		}
+	}
+
+	private Entry getEntry(Path jar, boolean async) {
+		final Path key = jar.toAbsolutePath().normalize();
+		final BasicFileAttributes attributes;
+
+		try {
+			attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read mod metadata from " + jar, e);
+		}
+
+		return entries.compute(key, (path, existing) -> {
+			if (existing != null && existing.matches(attributes)) {
+				return existing;
+			}
+
+			final long size = attributes.size();
+			final long lastModified = attributes.lastModifiedTime().toMillis();
+			final IndexEntry indexed = index.get(path.toString());
+			final CompletableFuture<ModMetadata> metadata;
+
+			if (indexed != null && indexed.size() == size && indexed.lastModified() == lastModified) {
+				metadata = CompletableFuture.completedFuture(indexed.metadata());
+			} else if (async) {
+				metadata = CompletableFuture.supplyAsync(() -> read(path, size, lastModified), ForkJoinPool.commonPool());
+			} else {
+				metadata = CompletableFuture.completedFuture(read(path, size, lastModified));
+			}
+
+			return new Entry(size, lastModified, attributes.fileKey(), metadata);
+		});
+	}
+
+	private ModMetadata read(Path jar, long size, long lastModified) {
+		final ModMetadata metadata;
+
+		try {
+			metadata = ModMetadata.read(jar, centralDirectoryCache);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read mod metadata from " + jar, e);
+		}
+
+		index.put(jar.toString(), new IndexEntry(size, lastModified, metadata));
+		dirty = true;
+		return metadata;
+	}
+
+	private static Map<String, IndexEntry> readIndex(Path indexFile) {
+		try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, INDEX_TYPE);
+		} catch (NoSuchFileException ignored) {
+			return Collections.emptyMap();
+		} catch (IOException e) {
+			// The jars will be read again
+			LOGGER.warn("Failed to read mod metadata index {}", indexFile, e);
+			return Collections.emptyMap();
+		}
+	}
+
+	private void saveIndex(Path indexFile) throws IOException {
+		// Keep what other builds may have added since this one started
+		final Map<String, IndexEntry> merged = new TreeMap<>(readIndex(indexFile));
+		merged.putAll(index);
+		merged.keySet().removeIf(path -> !Files.exists(Path.of(path)));
+
+		final Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+		Files.createDirectories(indexFile.getParent());
+
+		try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			LoomGradlePlugin.OBJECT_MAPPER.writeValue(writer, merged);
+		}
+
+		FileSystemUtil.replaceAtomically(tempFile, indexFile);
+	}
+
+	@Override
+	public void close() throws IOException {
+		entries.clear();
+
+		if (indexFile != null && dirty) {
+			saveIndex(indexFile);
+			dirty = false;
+		}
+	}
+
+	private record IndexEntry(long size, long lastModified, ModMetadata metadata) {
+	}
+
+	private record Entry(long size, long lastModified, @Nullable Object fileKey, CompletableFuture<ModMetadata> metadata) {
+		boolean matches(BasicFileAttributes attributes) {
+			return size == attributes.size()
+					&& lastModified == attributes.lastModifiedTime().toMillis()
+					&& Objects.equals(fileKey, attributes.fileKey());
+		}
+	}
+}
@@ -26,13 +26,19 @@ package net.fabricmc.loom.configuration.mods;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
@@ -45,14 +51,14 @@ import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
 import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
-import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.kotlin.remapping.KotlinMetadataTinyRemapperExtension;
+import net.fabricmc.loom.task.service.MappingsService;
+import net.fabricmc.loom.util.ClasspathAbiCache;
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.zip.ZipOutputConsumer;
 import net.fabricmc.tinyremapper.InputTag;
 import net.fabricmc.tinyremapper.NonClassCopyMode;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public class ModProcessor {
@@ -66,10 +72,18 @@ public class ModProcessor {
 	}
 
 	public void processMods(List<ModDependencyInfo> processList) throws IOException {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final List<Path> classpath = getRemapClasspath();
+		final List<ClasspathAbiCache.Abi> classpathAbi = ClasspathAbiCache.create(extension.getFiles().getUserCache().toPath()).getAll(classpath);
+		final Map<ModDependencyInfo, String> classpathHashes = new HashMap<>();
 		ArrayList<ModDependencyInfo> remapList = new ArrayList<>();
 
 		for (ModDependencyInfo info : processList) {
-			if (info.requiresRemapping()) {
+			// Each mod is only remapped against the rest of the classpath, so its own changes are left out of the hash
+			final String classpathHash = ClasspathAbiCache.combinedHash(classpath, classpathAbi, info.getInputFile().toPath());
+			classpathHashes.put(info, classpathHash);
+
+			if (info.requiresRemapping(classpathHash)) {
 				project.getLogger().debug("{} requires remapping", info.getInputFile());
 				Files.deleteIfExists(info.getRemappedOutput().toPath());
 
@@ -83,7 +97,7 @@ public class ModProcessor {
 		}
 
 		try {
-			remapJars(remapList);
+			remapJars(remapList, classpath, classpathAbi, classpathHashes);
 		} catch (Exception e) {
 			project.getLogger().error("Failed to remap %d mods".formatted(remapList.size()), e);
 
@@ -102,18 +116,6 @@ public class ModProcessor {
 		}
 	}
 
-	private void stripNestedJars(File file) {
-		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-		try {
-			ZipUtils.transformJson(JsonObject.class, file.toPath(), Map.of("fabric.mod.json", json -> {
-				json.remove("jars");
-				return json;
-			}));
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to strip nested jars from %s".formatted(file), e);
-		}
-	}
-
 	/**
 	 * Remap another mod's access widener from intermediary to named, so that loader can apply it in our dev-env.
 	 */
@@ -132,18 +134,35 @@ public class ModProcessor {
 		return writer.write();
 	}
 
-	private void remapJars(List<ModDependencyInfo> remapList) throws IOException {
+	/**
+	 * Returns everything that mods are remapped against, in the order that it is read. This includes the mods that are
+	 * being remapped, they are left out when reading the classpath as they are read as inputs instead.
+	 */
+	private List<Path> getRemapClasspath() {
 		final LoomGradleExtension extension = LoomGradleExtension.get(project);
-		final MappingsProviderImpl mappingsProvider = extension.getMappingsProvider();
-		final boolean useKotlinExtension = project.getPluginManager().hasPlugin("org.jetbrains.kotlin.jvm");
+		final Set<Path> classpath = new LinkedHashSet<>(extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY));
 
-		Path[] mcDeps = project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles()
-				.stream().map(File::toPath).toArray(Path[]::new);
+		for (File file : project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles()) {
+			classpath.add(file.toPath());
+		}
+
+		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
+			for (File file : project.getConfigurations().getByName(entry.sourceConfiguration()).getFiles()) {
+				classpath.add(file.toPath());
+			}
+		}
+
+		return new ArrayList<>(classpath);
+	}
+
+	private void remapJars(List<ModDependencyInfo> remapList, List<Path> classpath, List<ClasspathAbiCache.Abi> classpathAbi, Map<ModDependencyInfo, String> classpathHashes) throws IOException {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final boolean useKotlinExtension = project.getPluginManager().hasPlugin("org.jetbrains.kotlin.jvm");
 
 		project.getLogger().lifecycle(":remapping " + remapList.size() + " mods (TinyRemapper, " + fromM + " -> " + toM + ")");
 
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
-				.withMappings(TinyRemapperHelper.create(mappingsProvider.getMappings(), fromM, toM, false))
+				.withMappings(MappingsService.createDefault(project, fromM, toM).getMappingsProvider())
 				.renameInvalidLocals(false);
 
 		if (useKotlinExtension) {
@@ -152,26 +171,21 @@ public class ModProcessor {
 
 		final TinyRemapper remapper = builder.build();
 
-		for (Path minecraftJar : extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY)) {
-			remapper.readClassPathAsync(minecraftJar);
-		}
-
-		remapper.readClassPathAsync(mcDeps);
+		final Set<Path> inputs = remapList.stream().map(info -> info.getInputFile().toPath()).collect(Collectors.toSet());
 
-		final Map<ModDependencyInfo, InputTag> tagMap = new HashMap<>();
-		final Map<ModDependencyInfo, OutputConsumerPath> outputConsumerMap = new HashMap<>();
-		final Map<ModDependencyInfo, byte[]> accessWidenerMap = new HashMap<>();
+		for (int i = 0; i < classpath.size(); i++) {
+			if (inputs.contains(classpath.get(i))) {
+				continue;
+			}
 
-		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
-			for (File inputFile : project.getConfigurations().getByName(entry.sourceConfiguration()).getFiles()) {
-				if (remapList.stream().noneMatch(info -> info.getInputFile().equals(inputFile))) {
-					project.getLogger().debug("Adding " + inputFile + " onto the remap classpath");
+			project.getLogger().debug("Adding " + classpath.get(i) + " onto the remap classpath");
 
-					remapper.readClassPathAsync(inputFile.toPath());
-				}
-			}
+			// Only the stripped copy is read, the code is not needed to remap against
+			remapper.readClassPathAsync(classpathAbi.get(i).path());
 		}
 
+		final Map<ModDependencyInfo, InputTag> tagMap = new HashMap<>();
+
 		for (ModDependencyInfo info : remapList) {
 			InputTag tag = remapper.createInputTag();
 
@@ -181,44 +195,70 @@ public class ModProcessor {
 			tagMap.put(info, tag);
 		}
 
+		// Refresh the remapper environment once on this thread, getEnvironment is not safe to call from the pool.
+		final Remapper asmRemapper = remapper.getEnvironment().getRemapper();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(remapList.size(), Runtime.getRuntime().availableProcessors()));
+
 		try {
 			// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
-			for (ModDependencyInfo info : remapList) {
-				try {
-					OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(info.getRemappedOutput().toPath()).build();
+			final List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-					outputConsumer.addNonClassFiles(info.getInputFile().toPath(), NonClassCopyMode.FIX_META_INF, remapper);
-					outputConsumerMap.put(info, outputConsumer);
+			for (ModDependencyInfo info : remapList) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					try {
+						remapMod(info, remapper, asmRemapper, tagMap.get(info), classpathHashes.get(info));
+					} catch (Exception e) {
+						throw new RuntimeException("Failed to remap: " + info.getRemappedNotation(), e);
+					}
+				}, executor));
+			}
 
-					final ModDependencyInfo.AccessWidenerData accessWidenerData = info.getAccessWidenerData();
+			RuntimeException failure = null;
 
-					if (accessWidenerData != null) {
-						project.getLogger().debug("Remapping access widener in {}", info.getInputFile());
-						byte[] remappedAw = remapAccessWidener(accessWidenerData.content(), remapper.getEnvironment().getRemapper());
-						accessWidenerMap.put(info, remappedAw);
+			for (CompletableFuture<Void> future : futures) {
+				try {
+					future.join();
+				} catch (CompletionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+					} else {
+						failure.addSuppressed(e.getCause());
 					}
-
-					remapper.apply(outputConsumer, tagMap.get(info));
-				} catch (Exception e) {
-					throw new RuntimeException("Failed to remap: " + info.getRemappedNotation(), e);
 				}
 			}
+
+			if (failure != null) {
+				throw failure;
+			}
 		} finally {
+			executor.shutdownNow();
 			remapper.finish();
 		}
+	}
 
-		for (ModDependencyInfo info : remapList) {
-			outputConsumerMap.get(info).close();
-			byte[] accessWidener = accessWidenerMap.get(info);
-
-			if (accessWidener != null) {
-				assert info.getAccessWidenerData() != null;
-				ZipUtils.replace(info.getRemappedOutput().toPath(), info.getAccessWidenerData().path(), accessWidener);
+	/**
+	 * Writes the remapped mod, the access widener is remapped and the nested jars are stripped in the same write.
+	 */
+	private void remapMod(ModDependencyInfo info, TinyRemapper remapper, Remapper asmRemapper, InputTag tag, String classpathHash) throws IOException {
+		try (ZipOutputConsumer outputConsumer = new ZipOutputConsumer(info.getRemappedOutput().toPath())) {
+			final ModDependencyInfo.AccessWidenerData accessWidenerData = info.readAccessWidenerData();
+
+			if (accessWidenerData != null) {
+				project.getLogger().debug("Remapping access widener in {}", info.getInputFile());
+				final byte[] remappedAw = remapAccessWidener(accessWidenerData.content(), asmRemapper);
+				outputConsumer.transform(accessWidenerData.path(), bytes -> remappedAw);
 			}
 
-			stripNestedJars(info.getRemappedOutput());
+			// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
+			outputConsumer.transform("fabric.mod.json", ZipUtils.jsonTransformer(JsonObject.class, json -> {
+				json.remove("jars");
+				return json;
+			}));
 
-			info.finaliseRemapping();
+			outputConsumer.addNonClassFiles(info.getInputFile().toPath(), NonClassCopyMode.FIX_META_INF, asmRemapper);
+			remapper.apply(outputConsumer, tag);
 		}
+
+		info.finaliseRemapping(classpathHash);
 	}
 }
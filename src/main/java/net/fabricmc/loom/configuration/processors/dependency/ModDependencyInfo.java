@@ -31,15 +31,14 @@ import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
-import com.google.gson.JsonObject;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.artifacts.Configuration;
 import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.accesswidener.AccessWidenerReader;
-import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
-import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.configuration.mods.ModMetadata;
+import net.fabricmc.loom.configuration.mods.ModMetadataService;
 
 public class ModDependencyInfo {
 	private final String group;
@@ -50,13 +49,12 @@ public class ModDependencyInfo {
 	public final File inputFile;
 	public final Configuration targetConfig;
 	public final RemapData remapData;
-
-	@Nullable
-	private final AccessWidenerData accessWidenerData;
+	private final ModMetadataService metadataService;
+	private final ModMetadata metadata;
 
 	private boolean forceRemap = false;
 
-	public ModDependencyInfo(String group, String name, String version, @Nullable String classifier, File inputFile, Configuration targetConfig, RemapData remapData) {
+	public ModDependencyInfo(String group, String name, String version, @Nullable String classifier, File inputFile, Configuration targetConfig, RemapData remapData, ModMetadataService metadataService) {
 		this.group = group;
 		this.name = name;
 		this.version = version;
@@ -64,12 +62,8 @@ public class ModDependencyInfo {
 		this.inputFile = inputFile;
 		this.targetConfig = targetConfig;
 		this.remapData = remapData;
-
-		try {
-			this.accessWidenerData = tryReadAccessWidenerData(getInputFile().toPath());
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to read access widener data from" + inputFile, e);
-		}
+		this.metadataService = metadataService;
+		this.metadata = metadataService.get(inputFile);
 	}
 
 	public String getRemappedNotation() {
@@ -104,6 +98,10 @@ public class ModDependencyInfo {
 		return new File(getRemappedDir(), String.format("%s-%s", name, version) + ".pom");
 	}
 
+	private File getRemappedMetadata() {
+		return new File(getRemappedDir(), getRemappedFilename(true) + ".remap.json");
+	}
+
 	private String getGroup() {
 		return getMappingsPrefix(remapData.mappingsSuffix()) + "." + group;
 	}
@@ -116,42 +114,72 @@ public class ModDependencyInfo {
 		return inputFile;
 	}
 
-	private boolean outputHasInvalidAccessWidener() {
-		if (accessWidenerData == null) {
+	@Nullable
+	private String readOutputAccessWidenerNamespace() {
+		try {
+			// Read directly, the output is written once per remap and does not belong in the shared metadata index
+			return ModMetadata.read(getRemappedOutput().toPath()).accessWidenerNamespace();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read output access widener data from " + getRemappedOutput(), e);
+		}
+	}
+
+	private boolean hasInvalidAccessWidener(@Nullable String outputNamespace) {
+		if (metadata.accessWidenerPath() == null) {
 			// This mod doesn't use an AW
 			return false;
 		}
 
-		assert getRemappedOutput().exists();
-		final AccessWidenerData outputAWData;
+		// The output jar must have an AW in the "named" namespace.
+		return !MappingsNamespace.NAMED.toString().equals(outputNamespace);
+	}
 
-		try {
-			outputAWData = tryReadAccessWidenerData(getRemappedOutput().toPath());
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to read output access widener data from " + getRemappedOutput(), e);
+	/**
+	 * @param classpathHash the combined hash of the classpath that the mod would be remapped against
+	 */
+	public boolean requiresRemapping(String classpathHash) {
+		if (forceRemap || !getRemappedOutput().exists() || !getRemappedPom().exists()) {
+			return true;
 		}
 
-		if (outputAWData == null) {
-			// We know for sure the input has an AW, something is wrong if the output hasn't got one.
+		final Path metadataPath = getRemappedMetadata().toPath();
+		final RemappedModMetadata metadata = RemappedModMetadata.read(metadataPath);
+
+		if (metadata == null || hasInvalidAccessWidener(metadata.accessWidenerNamespace())) {
 			return true;
 		}
 
-		// The output jar must have an AW in the "named" namespace.
-		return !MappingsNamespace.NAMED.toString().equals(outputAWData.header().getNamespace());
-	}
+		if (!metadata.isUpToDate(inputFile, getRemappedOutput(), remapData.mappingsSuffix(), classpathHash)) {
+			return true;
+		}
+
+		if (metadata.inputLastModified() != inputFile.lastModified()) {
+			// Same contents in a new location or with a new timestamp, remember it so that it is not hashed again
+			try {
+				metadata.withInput(inputFile).write(metadataPath);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to write remapped mod metadata " + metadataPath, e);
+			}
+		}
 
-	public boolean requiresRemapping() {
-		return !getRemappedOutput().exists() || inputFile.lastModified() <= 0 || inputFile.lastModified() > getRemappedOutput().lastModified() || forceRemap || !getRemappedPom().exists() || outputHasInvalidAccessWidener();
+		return false;
 	}
 
-	public void finaliseRemapping() {
-		getRemappedOutput().setLastModified(inputFile.lastModified());
+	public void finaliseRemapping(String classpathHash) {
 		savePom();
 
 		// Validate that the remapped AW is what we want.
-		if (outputHasInvalidAccessWidener()) {
+		final String accessWidenerNamespace = readOutputAccessWidenerNamespace();
+
+		if (hasInvalidAccessWidener(accessWidenerNamespace)) {
 			throw new RuntimeException("Failed to validate remapped access widener in " + getRemappedOutput());
 		}
+
+		try {
+			RemappedModMetadata.create(inputFile, getRemappedOutput(), remapData.mappingsSuffix(), classpathHash, accessWidenerNamespace).write(getRemappedMetadata().toPath());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write remapped mod metadata for " + getRemappedOutput(), e);
+		}
 	}
 
 	private void savePom() {
@@ -186,21 +214,18 @@ public class ModDependencyInfo {
 		return classifier != null && !classifier.isEmpty();
 	}
 
+	/**
+	 * Reads the access widener of the input mod, or returns null if it does not have one.
+	 */
 	@Nullable
-	public AccessWidenerData getAccessWidenerData() {
-		return accessWidenerData;
-	}
-
-	private static AccessWidenerData tryReadAccessWidenerData(Path inputJar) throws IOException {
-		byte[] modJsonBytes = ZipUtils.unpack(inputJar, "fabric.mod.json");
-		JsonObject jsonObject = LoomGradlePlugin.GSON.fromJson(new String(modJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
+	public AccessWidenerData readAccessWidenerData() throws IOException {
+		final String accessWidenerPath = metadata.accessWidenerPath();
 
-		if (!jsonObject.has("accessWidener")) {
+		if (accessWidenerPath == null) {
 			return null;
 		}
 
-		String accessWidenerPath = jsonObject.get("accessWidener").getAsString();
-		byte[] accessWidener = ZipUtils.unpack(inputJar, accessWidenerPath);
+		byte[] accessWidener = metadata.readAccessWidener(inputFile.toPath(), metadataService.getCentralDirectoryCache());
 		AccessWidenerReader.Header header = AccessWidenerReader.readHeader(accessWidener);
 
 		return new AccessWidenerData(accessWidenerPath, header, accessWidener);
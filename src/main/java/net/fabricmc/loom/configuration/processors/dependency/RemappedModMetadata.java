@@ -0,0 +1,133 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.ClasspathAbiCache;
+import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * Describes how a remapped mod was produced, stored next to it so that it can be checked for being up-to-date without opening any jar.
+ *
+ * @param inputHash the sha256 of the input jar
+ * @param inputSize the size of the input jar when it was last checked
+ * @param inputLastModified the last modified time of the input jar when it was last checked
+ * @param outputSize the size of the remapped jar
+ * @param mappings the mappings used to remap the jar
+ * @param classpathHash the combined hash of the classpath the jar was remapped against, see {@link ClasspathAbiCache}
+ * @param loomVersion the version of loom that remapped the jar
+ * @param tinyRemapperVersion the version of tiny remapper that remapped the jar
+ * @param accessWidenerNamespace the namespace of the access widener in the remapped jar, or null if there is none
+ */
+public record RemappedModMetadata(String inputHash, long inputSize, long inputLastModified, long outputSize, String mappings, @Nullable String classpathHash,
+									String loomVersion, @Nullable String tinyRemapperVersion, @Nullable String accessWidenerNamespace) {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RemappedModMetadata.class);
+
+	public static RemappedModMetadata create(File input, File output, String mappings, String classpathHash, @Nullable String accessWidenerNamespace) {
+		return new RemappedModMetadata(hash(input), input.length(), input.lastModified(), output.length(), mappings, classpathHash, LoomGradlePlugin.LOOM_VERSION, getTinyRemapperVersion(), accessWidenerNamespace);
+	}
+
+	@Nullable
+	public static RemappedModMetadata read(Path path) {
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, RemappedModMetadata.class);
+		} catch (NoSuchFileException ignored) {
+			return null;
+		} catch (IOException e) {
+			// The mod will be remapped again
+			LOGGER.warn("Failed to read remapped mod metadata {}", path, e);
+			return null;
+		}
+	}
+
+	public void write(Path path) throws IOException {
+		// Unique so that concurrent builds checking the same mod do not write to the same file
+		final Path tempFile = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				LoomGradlePlugin.OBJECT_MAPPER.writeValue(writer, this);
+			}
+
+			FileSystemUtil.replaceAtomically(tempFile, path);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Returns true when the output was produced from the given input in the same way that it would be produced now.
+	 *
+	 * <p>The input is only hashed when its size or last modified time have changed, for example after being copied to another location.
+	 * Changes to the classpath only matter when they change its {@link ClasspathAbiCache.Abi}, as nothing else affects the remapped jar.
+	 */
+	public boolean isUpToDate(File input, File output, String mappings, String classpathHash) {
+		if (output.length() != outputSize()
+				|| !mappings().equals(mappings)
+				|| !classpathHash.equals(classpathHash())
+				|| !loomVersion().equals(LoomGradlePlugin.LOOM_VERSION)
+				|| !Objects.equals(tinyRemapperVersion(), getTinyRemapperVersion())) {
+			return false;
+		}
+
+		if (input.length() == inputSize() && input.lastModified() == inputLastModified()) {
+			return true;
+		}
+
+		return input.length() == inputSize() && hash(input).equals(inputHash());
+	}
+
+	/**
+	 * @return a copy of this with the current size and last modified time of the input
+	 */
+	public RemappedModMetadata withInput(File input) {
+		return new RemappedModMetadata(inputHash, input.length(), input.lastModified(), outputSize, mappings, classpathHash, loomVersion, tinyRemapperVersion, accessWidenerNamespace);
+	}
+
+	private static String hash(File file) {
+		return Checksum.toHex(Checksum.sha256(file));
+	}
+
+	@Nullable
+	private static String getTinyRemapperVersion() {
+		return TinyRemapper.class.getPackage().getImplementationVersion();
+	}
+}
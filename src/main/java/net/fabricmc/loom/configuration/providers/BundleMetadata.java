@@ -26,6 +26,7 @@ package net.fabricmc.loom.configuration.providers;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -35,7 +36,8 @@ import java.util.List;
 
 import org.jetbrains.annotations.Nullable;
 
-import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+import net.fabricmc.loom.util.zip.RawZipFile;
 
 public record BundleMetadata(List<Entry> libraries, List<Entry> versions, String mainClass) {
 	private static final String LIBRARIES_LIST_PATH = "META-INF/libraries.list";
@@ -44,24 +46,33 @@ public record BundleMetadata(List<Entry> libraries, List<Entry> versions, String
 
 	@Nullable
 	public static BundleMetadata fromJar(Path jar) throws IOException {
+		return fromJar(jar, null);
+	}
+
+	@Nullable
+	public static BundleMetadata fromJar(Path jar, @Nullable CentralDirectoryCache cache) throws IOException {
 		final List<Entry> libraries;
 		final List<Entry> versions;
 		final String mainClass;
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar)) {
-			if (!Files.exists(fs.get().getPath(VERSIONS_LIST_PATH))) {
+		try (RawZipFile zipFile = RawZipFile.open(jar, cache)) {
+			if (!zipFile.contains(VERSIONS_LIST_PATH)) {
 				// Legacy jar
 				return null;
 			}
 
-			libraries = readEntries(fs.readString(LIBRARIES_LIST_PATH), "META-INF/libraries/");
-			versions = readEntries(fs.readString(VERSIONS_LIST_PATH), "META-INF/versions/");
-			mainClass = fs.readString(MAINCLASS_PATH).trim();
+			libraries = readEntries(readString(zipFile, LIBRARIES_LIST_PATH), "META-INF/libraries/");
+			versions = readEntries(readString(zipFile, VERSIONS_LIST_PATH), "META-INF/versions/");
+			mainClass = readString(zipFile, MAINCLASS_PATH).trim();
 		}
 
 		return new BundleMetadata(libraries, versions, mainClass);
 	}
 
+	private static String readString(RawZipFile zipFile, String path) throws IOException {
+		return new String(zipFile.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
 	private static List<Entry> readEntries(String content, String pathPrefix) {
 		List<Entry> entries = new ArrayList<>();
 
@@ -84,8 +95,12 @@ public record BundleMetadata(List<Entry> libraries, List<Entry> versions, String
 
 	public record Entry(String sha1, String name, String path) {
 		public void unpackEntry(Path jar, Path dest) throws IOException {
-			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar);
-					InputStream is = Files.newInputStream(fs.get().getPath(path()))) {
+			unpackEntry(jar, dest, null);
+		}
+
+		public void unpackEntry(Path jar, Path dest, @Nullable CentralDirectoryCache cache) throws IOException {
+			try (RawZipFile zipFile = RawZipFile.open(jar, cache);
+					InputStream is = zipFile.getInputStream(path())) {
 				Files.copy(is, dest, StandardCopyOption.REPLACE_EXISTING);
 			}
 		}
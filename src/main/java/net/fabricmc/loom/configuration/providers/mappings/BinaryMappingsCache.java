@@ -0,0 +1,394 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+
+/**
+ * Reads mapping files through a binary copy that is stored next to them, which is much faster to load than parsing text.
+ *
+ * <p>The binary copy records the calls that a {@link MemoryMappingTree} makes when it is visited, with every string
+ * stored once in a pool, so loading it back is a matter of replaying the calls with the pooled strings. The copy is
+ * recreated when the size or last modified time of the mapping file no longer match.
+ *
+ * <p>Replaying only supports visitors that take every element in a single pass, such as {@link MemoryMappingTree}. The
+ * return values of the visit methods are not used to skip elements, and a visitor that asks for another pass by
+ * returning false from {@link MappingVisitor#visitEnd()} is rejected.
+ */
+public final class BinaryMappingsCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryMappingsCache.class);
+	private static final int MAGIC = 0x4C4D4150; // LMAP
+	private static final int VERSION = 1;
+
+	private static final byte HEADER = 0;
+	private static final byte NAMESPACES = 1;
+	private static final byte METADATA = 2;
+	private static final byte CONTENT = 3;
+	private static final byte CLASS = 4;
+	private static final byte FIELD = 5;
+	private static final byte METHOD = 6;
+	private static final byte METHOD_ARG = 7;
+	private static final byte METHOD_VAR = 8;
+	private static final byte DST_NAME = 9;
+	private static final byte DST_DESC = 10;
+	private static final byte ELEMENT_CONTENT = 11;
+	private static final byte COMMENT = 12;
+	private static final byte END = 13;
+
+	private static final MappedElementKind[] KINDS = MappedElementKind.values();
+
+	private BinaryMappingsCache() {
+	}
+
+	/**
+	 * Reads the mappings, from the binary copy when it is up-to-date or else from the file itself after which the copy is written.
+	 */
+	public static MemoryMappingTree read(Path mappings) throws IOException {
+		return read(mappings, true);
+	}
+
+	/**
+	 * Reads the mappings, from the binary copy when it is up-to-date or else from the file itself.
+	 *
+	 * @param writeCache whether to write the binary copy when it is missing or outdated, this should be false for
+	 *                   one-off files such as temp files so that their copies are not left behind
+	 */
+	public static MemoryMappingTree read(Path mappings, boolean writeCache) throws IOException {
+		final Path cache = getCachePath(mappings);
+		final long size = Files.size(mappings);
+		final long lastModified = Files.getLastModifiedTime(mappings).toMillis();
+
+		if (Files.exists(cache)) {
+			try {
+				final MemoryMappingTree mappingTree = readCache(cache, size, lastModified);
+
+				if (mappingTree != null) {
+					return mappingTree;
+				}
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Failed to read binary mappings {}, reading {} instead", cache, mappings, e);
+			}
+		}
+
+		final MemoryMappingTree mappingTree = new MemoryMappingTree();
+		MappingReader.read(mappings, mappingTree);
+
+		if (!writeCache) {
+			return mappingTree;
+		}
+
+		try {
+			write(mappingTree, cache, size, lastModified);
+		} catch (IOException e) {
+			// Not fatal, the mappings will be read from text again next time
+			LOGGER.warn("Failed to write binary mappings {}", cache, e);
+		}
+
+		return mappingTree;
+	}
+
+	public static Path getCachePath(Path mappings) {
+		return mappings.resolveSibling(mappings.getFileName() + ".bin");
+	}
+
+	private static void write(MemoryMappingTree mappingTree, Path cache, long size, long lastModified) throws IOException {
+		final Recorder recorder = new Recorder();
+		mappingTree.accept(recorder);
+
+		final Path tempFile = Files.createTempFile(cache.getParent(), cache.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(size);
+				output.writeLong(lastModified);
+				output.writeInt(recorder.strings.size());
+
+				for (String string : recorder.strings) {
+					final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+					output.writeInt(bytes.length);
+					output.write(bytes);
+				}
+
+				recorder.events.writeTo(output);
+			}
+
+			FileSystemUtil.replaceAtomically(tempFile, cache);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * @return null when the cache was written for a different version of the mappings file
+	 */
+	@Nullable
+	private static MemoryMappingTree readCache(Path cache, long size, long lastModified) throws IOException {
+		// The cache is small enough to read at once, it is not memory mapped as that keeps it locked on Windows.
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(cache)));
+
+		if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readLong() != size || input.readLong() != lastModified) {
+			return null;
+		}
+
+		final String[] strings = new String[input.readInt()];
+
+		for (int i = 0; i < strings.length; i++) {
+			final byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		final MemoryMappingTree mappingTree = new MemoryMappingTree();
+		replay(input, strings, mappingTree);
+		return mappingTree;
+	}
+
+	private static void replay(DataInputStream input, String[] strings, MappingVisitor visitor) throws IOException {
+		while (true) {
+			final byte event = input.readByte();
+
+			switch (event) {
+			case HEADER -> visitor.visitHeader();
+			case NAMESPACES -> {
+				final String srcNamespace = readString(input, strings);
+				final List<String> dstNamespaces = new ArrayList<>();
+				final int count = input.readInt();
+
+				for (int i = 0; i < count; i++) {
+					dstNamespaces.add(readString(input, strings));
+				}
+
+				visitor.visitNamespaces(srcNamespace, dstNamespaces);
+			}
+			case METADATA -> visitor.visitMetadata(readString(input, strings), readString(input, strings));
+			case CONTENT -> visitor.visitContent();
+			case CLASS -> visitor.visitClass(readString(input, strings));
+			case FIELD -> visitor.visitField(readString(input, strings), readString(input, strings));
+			case METHOD -> visitor.visitMethod(readString(input, strings), readString(input, strings));
+			case METHOD_ARG -> visitor.visitMethodArg(input.readInt(), input.readInt(), readString(input, strings));
+			case METHOD_VAR -> visitor.visitMethodVar(input.readInt(), input.readInt(), input.readInt(), readString(input, strings));
+			case DST_NAME -> visitor.visitDstName(KINDS[input.readByte()], input.readInt(), readString(input, strings));
+			case DST_DESC -> visitor.visitDstDesc(KINDS[input.readByte()], input.readInt(), readString(input, strings));
+			case ELEMENT_CONTENT -> visitor.visitElementContent(KINDS[input.readByte()]);
+			case COMMENT -> visitor.visitComment(KINDS[input.readByte()], readString(input, strings));
+			case END -> {
+				if (!visitor.visitEnd()) {
+					throw new UnsupportedOperationException("Replaying binary mappings into a visitor that needs more than one pass is not supported");
+				}
+
+				// A recording can hold more than one pass
+				if (input.available() == 0) {
+					return;
+				}
+			}
+			default -> throw new IOException("Unknown event " + event);
+			}
+		}
+	}
+
+	@Nullable
+	private static String readString(DataInputStream input, String[] strings) throws IOException {
+		final int index = input.readInt();
+		return index < 0 ? null : strings[index];
+	}
+
+	/**
+	 * The calls made to a {@link Recorder}, which can be replayed into any number of visitors. Like the binary copy,
+	 * only single pass visitors that take every element are supported.
+	 */
+	record Recording(String[] strings, byte[] events) {
+		void accept(MappingVisitor visitor) throws IOException {
+			if (events.length == 0) {
+				// Nothing was visited
+				return;
+			}
+
+			replay(new DataInputStream(new ByteArrayInputStream(events)), strings, visitor);
+		}
+	}
+
+	/**
+	 * Records the calls made to it, pooling the strings.
+	 */
+	static final class Recorder implements MappingVisitor {
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final ByteArrayOutputStream events = new ByteArrayOutputStream();
+		private final DataOutputStream output = new DataOutputStream(events);
+
+		@Override
+		public boolean visitHeader() throws IOException {
+			output.writeByte(HEADER);
+			return true;
+		}
+
+		@Override
+		public void visitNamespaces(String srcNamespace, List<String> dstNamespaces) throws IOException {
+			output.writeByte(NAMESPACES);
+			writeString(srcNamespace);
+			output.writeInt(dstNamespaces.size());
+
+			for (String dstNamespace : dstNamespaces) {
+				writeString(dstNamespace);
+			}
+		}
+
+		@Override
+		public void visitMetadata(String key, String value) throws IOException {
+			output.writeByte(METADATA);
+			writeString(key);
+			writeString(value);
+		}
+
+		@Override
+		public boolean visitContent() throws IOException {
+			output.writeByte(CONTENT);
+			return true;
+		}
+
+		@Override
+		public boolean visitClass(String srcName) throws IOException {
+			output.writeByte(CLASS);
+			writeString(srcName);
+			return true;
+		}
+
+		@Override
+		public boolean visitField(String srcName, String srcDesc) throws IOException {
+			output.writeByte(FIELD);
+			writeString(srcName);
+			writeString(srcDesc);
+			return true;
+		}
+
+		@Override
+		public boolean visitMethod(String srcName, String srcDesc) throws IOException {
+			output.writeByte(METHOD);
+			writeString(srcName);
+			writeString(srcDesc);
+			return true;
+		}
+
+		@Override
+		public boolean visitMethodArg(int argPosition, int lvIndex, String srcName) throws IOException {
+			output.writeByte(METHOD_ARG);
+			output.writeInt(argPosition);
+			output.writeInt(lvIndex);
+			writeString(srcName);
+			return true;
+		}
+
+		@Override
+		public boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, String srcName) throws IOException {
+			output.writeByte(METHOD_VAR);
+			output.writeInt(lvtRowIndex);
+			output.writeInt(lvIndex);
+			output.writeInt(startOpIdx);
+			writeString(srcName);
+			return true;
+		}
+
+		@Override
+		public boolean visitEnd() throws IOException {
+			output.writeByte(END);
+			return true;
+		}
+
+		@Override
+		public void visitDstName(MappedElementKind targetKind, int namespace, String name) throws IOException {
+			output.writeByte(DST_NAME);
+			output.writeByte(targetKind.ordinal());
+			output.writeInt(namespace);
+			writeString(name);
+		}
+
+		@Override
+		public void visitDstDesc(MappedElementKind targetKind, int namespace, String desc) throws IOException {
+			output.writeByte(DST_DESC);
+			output.writeByte(targetKind.ordinal());
+			output.writeInt(namespace);
+			writeString(desc);
+		}
+
+		@Override
+		public boolean visitElementContent(MappedElementKind targetKind) throws IOException {
+			output.writeByte(ELEMENT_CONTENT);
+			output.writeByte(targetKind.ordinal());
+			return true;
+		}
+
+		@Override
+		public void visitComment(MappedElementKind targetKind, String comment) throws IOException {
+			output.writeByte(COMMENT);
+			output.writeByte(targetKind.ordinal());
+			writeString(comment);
+		}
+
+		Recording finish() {
+			return new Recording(strings.toArray(String[]::new), events.toByteArray());
+		}
+
+		private void writeString(@Nullable String string) throws IOException {
+			if (string == null) {
+				output.writeInt(-1);
+				return;
+			}
+
+			Integer index = stringIndices.get(string);
+
+			if (index == null) {
+				index = strings.size();
+				strings.add(string);
+				stringIndices.put(string, index);
+			}
+
+			output.writeInt(index);
+		}
+	}
+}
@@ -24,13 +24,87 @@
 
 package net.fabricmc.loom.configuration.providers.mappings;
 
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.List;
 
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.api.mappings.layered.spec.FileSpec;
 import net.fabricmc.loom.api.mappings.layered.spec.MappingsSpec;
 
 public record LayeredMappingSpec(List<MappingsSpec<?>> layers) {
+	// The version ends up in several cache paths, 64 bits of the hash is plenty to tell the specs of one user apart
+	private static final int VERSION_HASH_LENGTH = 16;
+
 	public String getVersion() {
-		// TODO something better?
-		return "layered+hash.%d".formatted(Math.abs(hashCode()));
+		return "layered+hash.%s".formatted(getHash().substring(0, VERSION_HASH_LENGTH));
+	}
+
+	/**
+	 * Returns a SHA-256 over the canonical form of each layer spec, in which input files are replaced by the hashes of their
+	 * contents. Unlike {@link #hashCode()} it is the same in every build and on every machine, so the resolved mappings
+	 * can be shared by everything with the same inputs.
+	 */
+	public String getHash() {
+		final StringBuilder canonical = new StringBuilder();
+
+		for (MappingsSpec<?> layer : layers) {
+			appendCanonical(canonical, layer);
+			canonical.append('\n');
+		}
+
+		return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+	}
+
+	private static void appendCanonical(StringBuilder builder, @Nullable Object value) {
+		if (value instanceof FileSpec fileSpec) {
+			builder.append(fileSpec.getCacheKey());
+		} else if (value instanceof Record record) {
+			builder.append(record.getClass().getName()).append('[');
+			final RecordComponent[] components = record.getClass().getRecordComponents();
+
+			for (int i = 0; i < components.length; i++) {
+				if (i > 0) {
+					builder.append(',');
+				}
+
+				final Object component;
+
+				try {
+					component = components[i].getAccessor().invoke(record);
+				} catch (ReflectiveOperationException e) {
+					throw new RuntimeException("Failed to read %s of %s".formatted(components[i].getName(), record.getClass().getName()), e);
+				}
+
+				builder.append(components[i].getName()).append('=');
+				appendCanonical(builder, component);
+			}
+
+			builder.append(']');
+		} else if (value instanceof Collection<?> collection) {
+			builder.append('[');
+			boolean first = true;
+
+			for (Object element : collection) {
+				if (!first) {
+					builder.append(',');
+				}
+
+				appendCanonical(builder, element);
+				first = false;
+			}
+
+			builder.append(']');
+		} else if (value instanceof CharSequence) {
+			builder.append('"').append(value).append('"');
+		} else if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum<?>) {
+			builder.append(value);
+		} else {
+			// Specs that are not records only have their hash code to go by
+			builder.append(value.getClass().getName()).append('@').append(value.hashCode());
+		}
 	}
 }
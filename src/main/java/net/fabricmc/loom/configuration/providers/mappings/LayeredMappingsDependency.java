@@ -49,6 +49,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingContext;
 import net.fabricmc.loom.api.mappings.layered.MappingLayer;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.providers.mappings.extras.unpick.UnpickLayer;
+import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.mappingio.adapter.MappingDstNsReorder;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
@@ -81,11 +82,18 @@ public class LayeredMappingsDependency implements SelfResolvingDependency, FileC
 				var processor = new LayeredMappingsProcessor(layeredMappingSpec);
 				List<MappingLayer> layers = processor.resolveLayers(mappingContext);
 
-				Files.deleteIfExists(mappingsFile);
+				// The mappings are shared by every build with the same inputs, each one writes to its own temp file
+				Path tempFile = Files.createTempFile(mappingsDir, mappingsFile.getFileName().toString(), ".tmp");
 
-				writeMapping(processor, layers, mappingsFile);
-				writeSignatureFixes(processor, layers, mappingsFile);
-				writeUnpickData(processor, layers, mappingsFile);
+				try {
+					writeMapping(processor, layers, tempFile);
+					writeSignatureFixes(processor, layers, tempFile);
+					writeUnpickData(processor, layers, tempFile);
+
+					FileSystemUtil.replaceAtomically(tempFile, mappingsFile);
+				} finally {
+					Files.deleteIfExists(tempFile);
+				}
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to resolve layered mappings", e);
 			}
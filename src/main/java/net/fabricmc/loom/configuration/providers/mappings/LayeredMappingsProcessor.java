@@ -25,12 +25,17 @@
 package net.fabricmc.loom.configuration.providers.mappings;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -70,41 +75,94 @@ public class LayeredMappingsProcessor {
 		return Collections.unmodifiableList(layers);
 	}
 
+	/**
+	 * Merges the layers in order.
+	 *
+	 * <p>The layers are visited in parallel first, so that downloading and parsing their inputs does not wait on the other
+	 * layers, and the recorded calls are then replayed into the tree one layer after another. The tree is only switched to
+	 * another source namespace when it differs from that of the previous layer.
+	 */
 	public MemoryMappingTree getMappings(List<MappingLayer> layers) throws IOException {
+		final List<BinaryMappingsCache.Recording> recordings = visitLayers(layers);
 		MemoryMappingTree mappingTree = new MemoryMappingTree();
 
-		for (MappingLayer layer : layers) {
-			// We have to rebuild a new tree to work on when a layer doesnt merge into layered
-			boolean rebuild = layer.getSourceNamespace() != MappingsNamespace.NAMED;
-			MemoryMappingTree workingTree;
+		for (int i = 0; i < layers.size(); i++) {
+			final String srcNamespace = layers.get(i).getSourceNamespace().toString();
 
-			if (rebuild) {
-				var tempTree = new MemoryMappingTree();
+			// This can be null on the first layer
+			if (mappingTree.getSrcNamespace() != null && !mappingTree.getSrcNamespace().equals(srcNamespace)) {
+				mappingTree = switchSourceNamespace(mappingTree, srcNamespace);
+			}
 
-				// This can be null on the first layer
-				if (mappingTree.getSrcNamespace() != null) {
-					var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().toString());
-					mappingTree.accept(sourceNsSwitch);
-				}
+			recordings.get(i).accept(mappingTree);
+		}
+
+		if (mappingTree.getSrcNamespace() != null && !mappingTree.getSrcNamespace().equals(MappingsNamespace.NAMED.toString())) {
+			mappingTree = switchSourceNamespace(mappingTree, MappingsNamespace.NAMED.toString());
+		}
 
-				workingTree = tempTree;
-			} else {
-				workingTree = mappingTree;
+		return mappingTree;
+	}
+
+	private static MemoryMappingTree switchSourceNamespace(MemoryMappingTree mappingTree, String srcNamespace) throws IOException {
+		final MemoryMappingTree switched = new MemoryMappingTree();
+		mappingTree.accept(new MappingSourceNsSwitch(switched, srcNamespace));
+		return switched;
+	}
+
+	private static List<BinaryMappingsCache.Recording> visitLayers(List<MappingLayer> layers) throws IOException {
+		if (layers.isEmpty()) {
+			return List.of();
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(layers.size(), Runtime.getRuntime().availableProcessors()));
+
+		try {
+			final List<CompletableFuture<BinaryMappingsCache.Recording>> futures = new ArrayList<>();
+
+			for (MappingLayer layer : layers) {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					final BinaryMappingsCache.Recorder recorder = new BinaryMappingsCache.Recorder();
+
+					try {
+						layer.visit(recorder);
+					} catch (IOException e) {
+						throw new UncheckedIOException(new IOException("Failed to visit: " + layer.getClass(), e));
+					}
+
+					return recorder.finish();
+				}, executor));
 			}
 
-			try {
-				layer.visit(workingTree);
-			} catch (IOException e) {
-				throw new IOException("Failed to visit: " + layer.getClass(), e);
+			final List<BinaryMappingsCache.Recording> recordings = new ArrayList<>(layers.size());
+			Throwable failure = null;
+
+			for (CompletableFuture<BinaryMappingsCache.Recording> future : futures) {
+				try {
+					recordings.add(future.join());
+				} catch (CompletionException e) {
+					final Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+
+					if (failure == null) {
+						failure = cause;
+					} else {
+						failure.addSuppressed(cause);
+					}
+				}
 			}
 
-			if (rebuild) {
-				mappingTree = new MemoryMappingTree();
-				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()));
+			if (failure instanceof IOException ioException) {
+				throw ioException;
+			} else if (failure instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			} else if (failure != null) {
+				throw new RuntimeException(failure);
 			}
-		}
 
-		return mappingTree;
+			return recordings;
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	@Nullable
@@ -54,6 +54,7 @@ import net.fabricmc.loom.configuration.providers.mappings.tiny.MappingsMerger;
 import net.fabricmc.loom.configuration.providers.mappings.tiny.TinyJarInfo;
 import net.fabricmc.loom.configuration.providers.minecraft.MergedMinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftProvider;
+import net.fabricmc.loom.task.service.MappingTreeService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.DeletingFileVisitor;
 import net.fabricmc.loom.util.ZipUtils;
@@ -84,8 +85,9 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 	private Map<String, String> signatureFixes;
 
 	private final Supplier<IntermediaryService> intermediaryService;
+	private final SharedServiceManager sharedServiceManager;
 
-	private MappingsProviderImpl(String mappingsIdentifier, Path mappingsWorkingDir, Supplier<IntermediaryService> intermediaryService) {
+	private MappingsProviderImpl(String mappingsIdentifier, Path mappingsWorkingDir, Supplier<IntermediaryService> intermediaryService, SharedServiceManager sharedServiceManager) {
 		this.mappingsIdentifier = mappingsIdentifier;
 
 		this.mappingsWorkingDir = mappingsWorkingDir;
@@ -95,20 +97,26 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 		this.unpickDefinitions = mappingsWorkingDir.resolve("mappings.unpick");
 
 		this.intermediaryService = intermediaryService;
+		this.sharedServiceManager = sharedServiceManager;
 	}
 
 	public static synchronized MappingsProviderImpl getInstance(Project project, DependencyInfo dependency, MinecraftProvider minecraftProvider) {
-		return SharedServiceManager.get(project).getOrCreateService("MappingsProvider:%s:%s".formatted(dependency.getDepString(), minecraftProvider.minecraftVersion()), () -> {
+		final SharedServiceManager sharedServiceManager = SharedServiceManager.get(project);
+
+		return sharedServiceManager.getOrCreateService("MappingsProvider:%s:%s".formatted(dependency.getDepString(), minecraftProvider.minecraftVersion()), () -> {
 			Supplier<IntermediaryService> intermediaryService = Suppliers.memoize(() -> IntermediaryService.getInstance(project, minecraftProvider));
-			return create(dependency, minecraftProvider, intermediaryService);
+			return create(dependency, minecraftProvider, intermediaryService, sharedServiceManager);
 		});
 	}
 
+	/**
+	 * @return the mappings, shared with the rest of the build through the {@link MappingTreeService} so they must not be modified
+	 */
 	public MemoryMappingTree getMappings() throws IOException {
 		return Objects.requireNonNull(mappingTree, "Cannot get mappings before they have been read").get();
 	}
 
-	private static MappingsProviderImpl create(DependencyInfo dependency, MinecraftProvider minecraftProvider, Supplier<IntermediaryService> intermediaryService) {
+	private static MappingsProviderImpl create(DependencyInfo dependency, MinecraftProvider minecraftProvider, Supplier<IntermediaryService> intermediaryService, SharedServiceManager sharedServiceManager) {
 		final String version = dependency.getResolvedVersion();
 		final Path inputJar = dependency.resolveFile().orElseThrow(() -> new RuntimeException("Could not resolve mappings: " + dependency)).toPath();
 		final String mappingsName = StringUtils.removeSuffix(dependency.getDependency().getGroup() + "." + dependency.getDependency().getName(), "-unmerged");
@@ -123,7 +131,7 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 		final String mappingsIdentifier = createMappingsIdentifier(mappingsName, version, getMappingsClassifier(dependency, jarInfo.v2()), minecraftProvider.minecraftVersion());
 		final Path workingDir = minecraftProvider.dir(mappingsIdentifier).toPath();
 
-		var mappingProvider = new MappingsProviderImpl(mappingsIdentifier, workingDir, intermediaryService);
+		var mappingProvider = new MappingsProviderImpl(mappingsIdentifier, workingDir, intermediaryService, sharedServiceManager);
 
 		try {
 			mappingProvider.setup(minecraftProvider, inputJar);
@@ -206,9 +214,7 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 
 	private MemoryMappingTree readMappings() {
 		try {
-			MemoryMappingTree mappingTree = new MemoryMappingTree();
-			MappingReader.read(tinyMappings, mappingTree);
-			return mappingTree;
+			return MappingTreeService.getMappingTree(sharedServiceManager, tinyMappings);
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read mappings", e);
 		}
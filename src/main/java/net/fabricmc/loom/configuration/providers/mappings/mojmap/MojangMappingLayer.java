@@ -34,12 +34,15 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.api.mappings.layered.MappingLayer;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.providers.mappings.intermediary.IntermediaryMappingLayer;
 import net.fabricmc.loom.configuration.providers.mappings.utils.DstNameFilterMappingVisitor;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftVersionMeta;
+import net.fabricmc.loom.util.ArtifactStore;
+import net.fabricmc.loom.util.DownloadService;
 import net.fabricmc.loom.util.HashedDownloadUtil;
 import net.fabricmc.mappingio.MappingVisitor;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
@@ -48,6 +51,7 @@ import net.fabricmc.mappingio.format.ProGuardReader;
 public record MojangMappingLayer(MinecraftVersionMeta.Download clientDownload,
 									MinecraftVersionMeta.Download serverDownload,
 									Path workingDir, boolean nameSyntheticMembers,
+									@Nullable ArtifactStore artifactStore,
 									Logger logger) implements MappingLayer {
 	private static final Pattern SYNTHETIC_NAME_PATTERN = Pattern.compile("^(access|this|val\\$this|lambda\\$.*)\\$[0-9]+$");
 
@@ -74,8 +78,10 @@ public record MojangMappingLayer(MinecraftVersionMeta.Download clientDownload,
 	}
 
 	private void download(Path clientMappings, Path serverMappings) throws IOException {
-		HashedDownloadUtil.downloadIfInvalid(new URL(clientDownload().url()), clientMappings.toFile(), clientDownload().sha1(), logger(), false);
-		HashedDownloadUtil.downloadIfInvalid(new URL(serverDownload().url()), serverMappings.toFile(), serverDownload().sha1(), logger(), false);
+		DownloadService.downloadAll(List.of(
+				() -> HashedDownloadUtil.downloadIfInvalid(new URL(clientDownload().url()), clientMappings.toFile(), clientDownload().sha1(), logger(), false, artifactStore()),
+				() -> HashedDownloadUtil.downloadIfInvalid(new URL(serverDownload().url()), serverMappings.toFile(), serverDownload().sha1(), logger(), false, artifactStore())
+		));
 	}
 
 	private void printMappingsLicense(Path clientMappings) {
@@ -46,6 +46,7 @@ public record MojangMappingsSpec(boolean nameSyntheticMembers) implements Mappin
 				versionInfo.download(MANIFEST_SERVER_MAPPINGS),
 				context.workingDirectory("mojang"),
 				nameSyntheticMembers(),
+				context.minecraftProvider().getArtifactStore(),
 				context.getLogger()
 		);
 	}
@@ -28,12 +28,15 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.FileCollectionDependency;
 import org.gradle.api.artifacts.SelfResolvingDependency;
 
 import net.fabricmc.loom.api.mappings.layered.MappingContext;
 import net.fabricmc.loom.api.mappings.layered.spec.FileSpec;
+import net.fabricmc.loom.util.Checksum;
 
 public record DependencyFileSpec(Dependency dependency) implements FileSpec {
 	@Override
@@ -53,6 +56,18 @@ public record DependencyFileSpec(Dependency dependency) implements FileSpec {
 		return context.resolveDependency(dependency);
 	}
 
+	@Override
+	public String getCacheKey() {
+		if (dependency instanceof FileCollectionDependency fileCollectionDependency) {
+			// Local files have no version, use their contents instead
+			return fileCollectionDependency.getFiles().getFiles().stream()
+					.map(file -> "sha256:" + Checksum.toHex(Checksum.sha256(file)))
+					.collect(Collectors.joining(",", "[", "]"));
+		}
+
+		return "dependency:%s:%s:%s".formatted(dependency.getGroup(), dependency.getName(), dependency.getVersion());
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hash(dependency.getGroup(), dependency.getName(), dependency.getVersion());
@@ -35,20 +35,22 @@ import net.fabricmc.loom.util.Checksum;
 
 public class LocalFileSpec implements FileSpec {
 	private final File file;
+	private final byte[] sha256;
 	private final int hash;
 
 	public LocalFileSpec(File file) {
 		this.file = file;
-		this.hash = calculateHashCode();
+		this.sha256 = calculateSha256();
+		this.hash = Objects.hash(Arrays.hashCode(sha256), file.getAbsolutePath());
 	}
 
-	private int calculateHashCode() {
+	private byte[] calculateSha256() {
 		if (!file.exists()) {
 			throw new RuntimeException("Could not find %s, it must be present at spec creation time to calculate mappings hash".formatted(file.getAbsolutePath()));
 		}
 
 		// Use the file hash as part of the spec, this means if the input file changes the mappings will be re-generated.
-		return Objects.hash(Arrays.hashCode(Checksum.sha256(file)), file.getAbsolutePath());
+		return Checksum.sha256(file);
 	}
 
 	@Override
@@ -56,6 +58,12 @@ public class LocalFileSpec implements FileSpec {
 		return file.toPath();
 	}
 
+	@Override
+	public String getCacheKey() {
+		// Only the contents, the same file elsewhere or on another machine gives the same mappings
+		return "sha256:" + Checksum.toHex(sha256);
+	}
+
 	@Override
 	public int hashCode() {
 		return hash;
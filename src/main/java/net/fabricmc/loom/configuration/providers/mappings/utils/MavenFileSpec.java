@@ -34,4 +34,10 @@ public record MavenFileSpec(String dependencyNotation) implements FileSpec {
 	public Path get(MappingContext context) {
 		return context.resolveMavenDependency(dependencyNotation);
 	}
+
+	@Override
+	public String getCacheKey() {
+		// Only the notation, the file is not resolved until the mappings are built
+		return "maven:" + dependencyNotation;
+	}
 }
@@ -51,6 +51,11 @@ public record URLFileSpec(URL url) implements FileSpec {
 		}
 	}
 
+	@Override
+	public String getCacheKey() {
+		return "url:" + url;
+	}
+
 	@Override
 	public int hashCode() {
 		// URL performs DNS requests if you .hashCode it (:
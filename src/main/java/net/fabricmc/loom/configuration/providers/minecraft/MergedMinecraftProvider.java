@@ -34,7 +34,6 @@ import java.util.Objects;
 import org.gradle.api.Project;
 
 import net.fabricmc.loom.util.HashedDownloadUtil;
-import net.fabricmc.stitch.merge.JarMerger;
 
 public final class MergedMinecraftProvider extends MinecraftProvider {
 	private Path minecraftMergedJar;
@@ -84,7 +83,7 @@ public final class MergedMinecraftProvider extends MinecraftProvider {
 
 		Objects.requireNonNull(jarToMerge, "Cannot merge null input jar?");
 
-		try (JarMerger jarMerger = new JarMerger(getMinecraftClientJar(), jarToMerge, minecraftMergedJar.toFile())) {
+		try (MinecraftJarMerger jarMerger = new MinecraftJarMerger(getMinecraftClientJar().toPath(), jarToMerge.toPath(), minecraftMergedJar)) {
 			jarMerger.enableSyntheticParamsOffset();
 			jarMerger.merge();
 		}
@@ -0,0 +1,252 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.configuration.providers.minecraft;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.zip.RawZipEntry;
+import net.fabricmc.loom.util.zip.RawZipFile;
+import net.fabricmc.loom.util.zip.RawZipWriter;
+import net.fabricmc.stitch.merge.ClassMerger;
+import net.fabricmc.stitch.util.SyntheticParameterClassVisitor;
+
+/**
+ * Merges the client and server jars into a single jar, producing the same output as stitch's JarMerger.
+ *
+ * <p>Both jars are read at the same time and the classes present in both jars are merged on the common fork join pool,
+ * the merged entries are written in name order as soon as they are ready. The merging of a single class is done by stitch's {@link ClassMerger}.
+ */
+public class MinecraftJarMerger implements AutoCloseable {
+	private static final ClassMerger CLASS_MERGER = new ClassMerger();
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+	private static final byte[] MANIFEST = "Manifest-Version: 1.0\nMain-Class: net.minecraft.client.Main\n".getBytes(StandardCharsets.UTF_8);
+
+	private final RawZipFile clientJar;
+	private final RawZipFile serverJar;
+	private final Path outputJar;
+	private boolean offsetSyntheticsParams = false;
+
+	public MinecraftJarMerger(Path clientJar, Path serverJar, Path outputJar) throws IOException {
+		this.clientJar = RawZipFile.open(Objects.requireNonNull(clientJar));
+
+		try {
+			this.serverJar = RawZipFile.open(Objects.requireNonNull(serverJar));
+		} catch (IOException e) {
+			this.clientJar.close();
+			throw e;
+		}
+
+		this.outputJar = Objects.requireNonNull(outputJar);
+	}
+
+	public void enableSyntheticParamsOffset() {
+		offsetSyntheticsParams = true;
+	}
+
+	public void merge() throws IOException {
+		final Map<String, Entry> clientEntries;
+		final Map<String, Entry> serverEntries;
+
+		try {
+			CompletableFuture<Map<String, Entry>> server = CompletableFuture.supplyAsync(() -> readEntries(serverJar));
+			clientEntries = readEntries(clientJar);
+			serverEntries = server.join();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+
+			throw e;
+		}
+
+		final Set<String> names = new TreeSet<>(clientEntries.keySet());
+		names.addAll(serverEntries.keySet());
+
+		final List<ForkJoinTask<MergedEntry>> tasks = new ArrayList<>(names.size());
+
+		for (String name : names) {
+			tasks.add(ForkJoinPool.commonPool().submit(() -> mergeEntry(name, clientEntries, serverEntries)));
+		}
+
+		try (RawZipWriter writer = RawZipWriter.create(outputJar)) {
+			// Write the entries in order as they are merged, the tasks further along the list keep running in the background.
+			for (ForkJoinTask<MergedEntry> task : tasks) {
+				final MergedEntry entry;
+
+				try {
+					entry = task.join();
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+
+				if (entry == null) {
+					continue;
+				}
+
+				if (entry.data() != null) {
+					// Merged classes keep the time of the client entry
+					writer.putCompressed(entry.data(), entry.source().entry().lastModifiedTime().toMillis());
+				} else {
+					writer.copyRaw(entry.source().zipFile(), entry.source().entry());
+				}
+			}
+		} finally {
+			for (ForkJoinTask<MergedEntry> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	private static Map<String, Entry> readEntries(RawZipFile zipFile) {
+		final Map<String, Entry> entries = new HashMap<>();
+
+		try {
+			for (RawZipEntry entry : zipFile.getEntries()) {
+				final String name = entry.name();
+
+				if (entry.isDirectory()) {
+					continue;
+				}
+
+				if (name.endsWith(".class")) {
+					entries.put(name, new Entry(zipFile, entry, zipFile.readAllBytes(entry)));
+				} else if (name.equals(MANIFEST_PATH)) {
+					entries.put(name, new Entry(zipFile, entry, MANIFEST));
+				} else if (!(name.startsWith("META-INF/") && (name.endsWith(".SF") || name.endsWith(".RSA")))) {
+					entries.put(name, new Entry(zipFile, entry, null));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read " + zipFile.getPath(), e);
+		}
+
+		return entries;
+	}
+
+	@Nullable
+	private MergedEntry mergeEntry(String name, Map<String, Entry> clientEntries, Map<String, Entry> serverEntries) {
+		final boolean isClass = name.endsWith(".class");
+		final boolean isMinecraft = clientEntries.containsKey(name) || name.startsWith("net/minecraft") || !name.contains("/");
+		final Entry clientEntry = clientEntries.get(name);
+		final Entry serverEntry = serverEntries.get(name);
+
+		Entry result;
+		String side = null;
+		boolean modified = name.equals(MANIFEST_PATH);
+
+		if (clientEntry != null && serverEntry != null) {
+			if (isClass && !Arrays.equals(clientEntry.data(), serverEntry.data())) {
+				result = new Entry(clientEntry.zipFile(), clientEntry.entry(), CLASS_MERGER.merge(clientEntry.data(), serverEntry.data()));
+				modified = true;
+			} else {
+				result = clientEntry;
+			}
+		} else if (clientEntry != null) {
+			result = clientEntry;
+			side = "CLIENT";
+		} else {
+			result = serverEntry;
+			side = "SERVER";
+		}
+
+		if (isClass && !isMinecraft && "SERVER".equals(side)) {
+			// Server bundles libraries, client doesn't - skip them
+			return null;
+		}
+
+		byte[] data = result.data();
+
+		if (isMinecraft && isClass) {
+			final ClassReader reader = new ClassReader(data);
+			final ClassWriter writer = new ClassWriter(0);
+			ClassVisitor visitor = writer;
+
+			if (side != null) {
+				visitor = new ClassMerger.SidedClassVisitor(Constants.ASM_VERSION, visitor, side);
+			}
+
+			if (offsetSyntheticsParams) {
+				visitor = new SyntheticParameterClassVisitor(Constants.ASM_VERSION, visitor);
+			}
+
+			if (visitor != writer) {
+				reader.accept(visitor, 0);
+				data = writer.toByteArray();
+				modified = true;
+			}
+		}
+
+		if (!modified) {
+			// Unchanged, the compressed data can be copied from the input jar
+			return new MergedEntry(result, null);
+		}
+
+		// Compress here so that it also happens in parallel
+		return new MergedEntry(result, RawZipWriter.compress(name, data));
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (RawZipFile ignored = clientJar; RawZipFile ignored1 = serverJar) {
+			// Close both jars
+		}
+	}
+
+	/**
+	 * @param data the class bytes or replaced manifest, null for other files that are copied as is
+	 */
+	private record Entry(RawZipFile zipFile, RawZipEntry entry, @Nullable byte[] data) {
+	}
+
+	/**
+	 * @param data the new compressed data, null when the source entry is copied as is
+	 */
+	private record MergedEntry(Entry source, RawZipWriter.CompressedEntry data) {
+	}
+}
@@ -27,23 +27,31 @@ package net.fabricmc.loom.configuration.providers.minecraft;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
-import java.util.stream.Stream;
 
 import com.google.common.collect.Sets;
 
-import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.loom.util.zip.RawZipEntry;
+import net.fabricmc.loom.util.zip.RawZipFile;
+import net.fabricmc.loom.util.zip.RawZipWriter;
 
 public class MinecraftJarSplitter implements AutoCloseable {
 	private final Path clientInputJar;
 	private final Path serverInputJar;
+	// Used to process the server jar while the client jar is processed on the calling thread
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
 
 	private EntryData entryData;
 	private Set<String> sharedEntries = new HashSet<>();
@@ -59,14 +67,25 @@ public class MinecraftJarSplitter implements AutoCloseable {
 		Objects.requireNonNull(commonOutputJar);
 
 		if (entryData == null) {
-			entryData = new EntryData(getJarEntries(clientInputJar), getJarEntries(serverInputJar));
+			Future<Set<String>> serverEntries = executor.submit(() -> getJarEntries(serverInputJar));
+			Set<String> clientEntries = getJarEntries(clientInputJar);
+			entryData = new EntryData(clientEntries, await(serverEntries));
 		}
 
 		// Not something we expect, will require 3 jars, server, client and common.
 		assert entryData.serverOnlyEntries.isEmpty();
 
-		copyEntriesToJar(entryData.commonEntries, serverInputJar, commonOutputJar);
-		copyEntriesToJar(entryData.clientOnlyEntries, clientInputJar, clientOnlyOutputJar);
+		// The two jars do not depend on each other, write them at the same time.
+		Future<?> common = executor.submit(() -> {
+			copyEntriesToJar(entryData.commonEntries, serverInputJar, commonOutputJar);
+			return null;
+		});
+
+		try {
+			copyEntriesToJar(entryData.clientOnlyEntries, clientInputJar, clientOnlyOutputJar);
+		} finally {
+			await(common);
+		}
 	}
 
 	public void sharedEntry(String path) {
@@ -80,65 +99,68 @@ public class MinecraftJarSplitter implements AutoCloseable {
 	private Set<String> getJarEntries(Path input) throws IOException {
 		Set<String> entries = Sets.newHashSet();
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(input);
-				Stream<Path> walk = Files.walk(fs.get().getPath("/"))) {
-			Iterator<Path> iterator = walk.iterator();
-
-			while (iterator.hasNext()) {
-				Path fsPath = iterator.next();
-
-				if (!Files.isRegularFile(fsPath)) {
-					continue;
-				}
-
-				String entryPath = fs.get().getPath("/").relativize(fsPath).toString();
-
-				if (entryPath.startsWith("META-INF/")) {
+		// Only the central directory needs to be read to list the entries
+		try (RawZipFile zipFile = RawZipFile.open(input)) {
+			for (RawZipEntry entry : zipFile.getEntries()) {
+				if (entry.isDirectory() || entry.name().startsWith("META-INF/")) {
 					continue;
 				}
 
-				entries.add(entryPath);
+				entries.add(entry.name());
 			}
 		}
 
 		return entries;
 	}
 
+	private static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while splitting jars", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw new RuntimeException("Failed to split jars", e.getCause());
+		}
+	}
+
 	private void copyEntriesToJar(Set<String> entries, Path inputJar, Path outputJar) throws IOException {
 		Files.deleteIfExists(outputJar);
 
-		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar);
-				FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(outputJar, true)) {
-			for (String entry : entries) {
-				Path inputPath = inputFs.get().getPath(entry);
-				Path outputPath = outputFs.get().getPath(entry);
-
-				assert Files.isRegularFile(inputPath);
+		try (RawZipFile inputZip = RawZipFile.open(inputJar);
+				RawZipWriter outputZip = RawZipWriter.create(outputJar)) {
+			// Sorted so that the output is the same every time
+			final List<String> sortedEntries = entries.stream().sorted().toList();
 
-				Path outputPathParent = outputPath.getParent();
+			for (String entry : sortedEntries) {
+				RawZipEntry zipEntry = inputZip.getEntry(entry);
 
-				if (outputPathParent != null) {
-					Files.createDirectories(outputPathParent);
+				if (zipEntry == null) {
+					throw new NoSuchFileException("Could not find %s in %s".formatted(entry, inputJar));
 				}
 
-				Files.copy(inputPath, outputPath, StandardCopyOption.COPY_ATTRIBUTES);
+				outputZip.copyRaw(inputZip, zipEntry);
 			}
 
-			writeManifest(outputFs);
+			writeManifest(outputZip);
 		}
 	}
 
-	private void writeManifest(FileSystemUtil.Delegate outputFs) throws IOException {
+	private void writeManifest(RawZipWriter outputZip) throws IOException {
 		final Manifest manifest = new Manifest();
 		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		manifest.write(out);
-		Files.createDirectories(outputFs.get().getPath("META-INF"));
-		Files.write(outputFs.get().getPath("META-INF/MANIFEST.MF"), out.toByteArray());
+		outputZip.putEntry("META-INF/MANIFEST.MF", out.toByteArray(), ZipReprocessorUtil.CONSTANT_TIME_FOR_ZIP_ENTRIES);
 	}
 
 	@Override
 	public void close() throws Exception {
+		executor.shutdownNow();
 	}
 
 	private final class EntryData {
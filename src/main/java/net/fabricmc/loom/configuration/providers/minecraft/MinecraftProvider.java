@@ -44,10 +44,14 @@ import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.DependencyInfo;
 import net.fabricmc.loom.configuration.providers.BundleMetadata;
+import net.fabricmc.loom.util.ArtifactStore;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.DownloadService;
 import net.fabricmc.loom.util.DownloadUtil;
 import net.fabricmc.loom.util.HashedDownloadUtil;
 import net.fabricmc.loom.util.MirrorUtil;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
 
 public abstract class MinecraftProvider {
 	private String minecraftVersion;
@@ -66,6 +70,7 @@ public abstract class MinecraftProvider {
 	private BundleMetadata serverBundleMetadata;
 	private File versionManifestJson;
 	private File experimentalVersionsJson;
+	private ArtifactStore artifactStore;
 
 	private final Project project;
 
@@ -97,7 +102,7 @@ public abstract class MinecraftProvider {
 			downloadJars(getProject().getLogger());
 		}
 
-		serverBundleMetadata = BundleMetadata.fromJar(minecraftServerJar.toPath());
+		serverBundleMetadata = BundleMetadata.fromJar(minecraftServerJar.toPath(), getCentralDirectoryCache());
 
 		libraryProvider = new MinecraftLibraryProvider();
 		libraryProvider.provide(this, getProject());
@@ -112,6 +117,7 @@ public abstract class MinecraftProvider {
 		minecraftExtractedServerJar = file("minecraft-extracted_server.jar");
 		versionManifestJson = new File(getExtension().getFiles().getUserCache(), "version_manifest.json");
 		experimentalVersionsJson = new File(getExtension().getFiles().getUserCache(), "experimental_version_manifest.json");
+		artifactStore = ArtifactStore.create(getExtension().getFiles().getUserCache().toPath());
 	}
 
 	private void downloadMcJson(boolean offline) throws IOException {
@@ -234,8 +240,10 @@ public abstract class MinecraftProvider {
 		MinecraftVersionMeta.Download client = versionInfo.download("client");
 		MinecraftVersionMeta.Download server = versionInfo.download("server");
 
-		HashedDownloadUtil.downloadIfInvalid(new URL(client.url()), minecraftClientJar, client.sha1(), logger, false);
-		HashedDownloadUtil.downloadIfInvalid(new URL(server.url()), minecraftServerJar, server.sha1(), logger, false);
+		DownloadService.downloadAll(List.of(
+				() -> HashedDownloadUtil.downloadIfInvalid(new URL(client.url()), minecraftClientJar, client.sha1(), logger, false, artifactStore),
+				() -> HashedDownloadUtil.downloadIfInvalid(new URL(server.url()), minecraftServerJar, server.sha1(), logger, false, artifactStore)
+		));
 	}
 
 	protected final void extractBundledServerJar() throws IOException {
@@ -247,7 +255,11 @@ public abstract class MinecraftProvider {
 			throw new UnsupportedOperationException("Expected only 1 version in META-INF/versions.list, but got %d".formatted(getServerBundleMetadata().versions().size()));
 		}
 
-		getServerBundleMetadata().versions().get(0).unpackEntry(minecraftServerJar.toPath(), getMinecraftExtractedServerJar().toPath());
+		getServerBundleMetadata().versions().get(0).unpackEntry(minecraftServerJar.toPath(), getMinecraftExtractedServerJar().toPath(), getCentralDirectoryCache());
+	}
+
+	public ArtifactStore getArtifactStore() {
+		return artifactStore;
 	}
 
 	public File workingDir() {
@@ -314,6 +326,10 @@ public abstract class MinecraftProvider {
 		return project;
 	}
 
+	private CentralDirectoryCache getCentralDirectoryCache() {
+		return CentralDirectoryCache.getInstance(SharedServiceManager.get(getProject()));
+	}
+
 	protected LoomGradleExtension getExtension() {
 		return LoomGradleExtension.get(getProject());
 	}
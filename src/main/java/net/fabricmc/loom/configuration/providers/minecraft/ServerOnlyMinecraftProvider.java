@@ -31,8 +31,8 @@ import java.util.List;
 import org.gradle.api.Project;
 
 import net.fabricmc.loom.configuration.providers.BundleMetadata;
+import net.fabricmc.loom.util.zip.ZipOutputConsumer;
 import net.fabricmc.tinyremapper.NonClassCopyMode;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public final class ServerOnlyMinecraftProvider extends MinecraftProvider {
@@ -81,8 +81,8 @@ public final class ServerOnlyMinecraftProvider extends MinecraftProvider {
 			Files.deleteIfExists(minecraftServerOnlyJar);
 
 			// Pass through tiny remapper to fix the meta-inf
-			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(minecraftServerOnlyJar).build()) {
-				outputConsumer.addNonClassFiles(serverJar, NonClassCopyMode.FIX_META_INF, remapper);
+			try (ZipOutputConsumer outputConsumer = new ZipOutputConsumer(minecraftServerOnlyJar)) {
+				outputConsumer.addNonClassFiles(serverJar, NonClassCopyMode.FIX_META_INF, remapper.getEnvironment().getRemapper());
 				remapper.readInputs(serverJar);
 				remapper.apply(outputConsumer);
 			}
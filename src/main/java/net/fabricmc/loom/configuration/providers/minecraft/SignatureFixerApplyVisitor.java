@@ -35,8 +35,8 @@ import org.objectweb.asm.commons.Remapper;
 
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
+import net.fabricmc.loom.task.service.RemapperEnvironmentService;
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.tinyremapper.TinyRemapper;
 import net.fabricmc.tinyremapper.api.TrClass;
 
@@ -68,10 +68,9 @@ public record SignatureFixerApplyVisitor(Map<String, String> signatureFixes) imp
 
 		// Remap the sig fixes from intermediary to the target namespace
 		final Map<String, String> remapped = new HashMap<>();
-		final TinyRemapper sigTinyRemapper = TinyRemapperHelper.getTinyRemapper(project, MappingsNamespace.INTERMEDIARY.toString(), targetNamespace);
-		final Remapper sigAsmRemapper = sigTinyRemapper.getEnvironment().getRemapper();
+		final Remapper sigAsmRemapper = RemapperEnvironmentService.getOrCreate(project, MappingsNamespace.INTERMEDIARY.toString(), targetNamespace).getMappingRemapper();
 
-		// Remap the class names and the signatures using a new tiny remapper instance.
+		// Remap the class names and the signatures, this only needs the mappings.
 		for (Map.Entry<String, String> entry : mappingsProvider.getSignatureFixes().entrySet()) {
 			remapped.put(
 					sigAsmRemapper.map(entry.getKey()),
@@ -79,7 +78,6 @@ public record SignatureFixerApplyVisitor(Map<String, String> signatureFixes) imp
 			);
 		}
 
-		sigTinyRemapper.finish();
 		return remapped;
 	}
 }
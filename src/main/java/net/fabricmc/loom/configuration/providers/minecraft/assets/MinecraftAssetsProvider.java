@@ -27,13 +27,21 @@ package net.fabricmc.loom.configuration.providers.minecraft.assets;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
-import java.util.Deque;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.base.Stopwatch;
 import org.gradle.api.GradleException;
@@ -43,8 +51,10 @@ import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftVersionMeta;
-import net.fabricmc.loom.util.MirrorUtil;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.DownloadService;
 import net.fabricmc.loom.util.HashedDownloadUtil;
+import net.fabricmc.loom.util.MirrorUtil;
 import net.fabricmc.loom.util.gradle.ProgressLoggerHelper;
 
 public class MinecraftAssetsProvider {
@@ -78,85 +88,117 @@ public class MinecraftAssetsProvider {
 			HashedDownloadUtil.downloadIfInvalid(new URL(assetIndex.url()), assetsInfo, assetIndex.sha1(), project.getLogger(), false);
 		}
 
-		Deque<ProgressLoggerHelper> loggers = new ConcurrentLinkedDeque<>();
-		ExecutorService executor = Executors.newFixedThreadPool(Math.min(10, Math.max(Runtime.getRuntime().availableProcessors() / 2, 1)));
-
 		AssetIndex index;
 
 		try (FileReader fileReader = new FileReader(assetsInfo)) {
 			index = LoomGradlePlugin.OBJECT_MAPPER.readValue(fileReader, AssetIndex.class);
 		}
 
+		final Path objects = assets.toPath().resolve("objects");
+		final VerifiedAssetIndex verifiedIndex = VerifiedAssetIndex.load(assets.toPath().resolve("indexes").resolve("verified-objects.json"));
+
+		if (LoomGradlePlugin.refreshDeps && !Boolean.getBoolean("loom.refresh")) {
+			verifiedIndex.clear();
+		}
+
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
 		Map<String, AssetObject> parent = index.objects();
+		// Keyed by hash, as multiple assets can share the same object
+		Map<String, AssetObject> toDownload = new LinkedHashMap<>();
 
-		for (Map.Entry<String, AssetObject> entry : parent.entrySet()) {
-			AssetObject object = entry.getValue();
-			String sha1 = object.hash();
-			String filename = "objects" + File.separator + sha1.substring(0, 2) + File.separator + sha1;
-			File file = new File(assets, filename);
+		try {
+			for (Map.Entry<String, AssetObject> entry : parent.entrySet()) {
+				AssetObject object = entry.getValue();
+				String sha1 = object.hash();
+				Path file = getObjectPath(objects, sha1);
 
-			if (offline) {
-				if (file.exists()) {
-					project.getLogger().warn("Outdated asset " + entry.getKey());
-				} else {
-					throw new GradleException("Asset " + entry.getKey() + " not found at " + file.getAbsolutePath());
+				if (verifiedIndex.isVerified(sha1, file)) {
+					continue;
 				}
-			} else {
-				executor.execute(() -> {
-					final String[] assetName = {entry.getKey()};
-					int end = assetName[0].lastIndexOf("/") + 1;
 
-					if (end > 0) {
-						assetName[0] = assetName[0].substring(end);
+				if (offline) {
+					if (Files.exists(file)) {
+						project.getLogger().warn("Outdated asset " + entry.getKey());
+					} else {
+						throw new GradleException("Asset " + entry.getKey() + " not found at " + file.toAbsolutePath());
 					}
+				} else if (Files.exists(file) && Files.size(file) == object.size() && Checksum.equals(file.toFile(), sha1)) {
+					// Downloaded before the index existed, or the file was touched
+					verifiedIndex.markVerified(sha1, file);
+				} else {
+					toDownload.putIfAbsent(sha1, object);
+				}
+			}
 
-					project.getLogger().debug("validating asset " + assetName[0]);
+			project.getLogger().info("Took " + stopwatch.stop() + " to verify " + parent.size() + " assets, " + toDownload.size() + " to download.");
 
-					final ProgressLoggerHelper[] progressLogger = new ProgressLoggerHelper[1];
+			if (!toDownload.isEmpty()) {
+				downloadAssets(project, toDownload.values(), objects, verifiedIndex);
+			}
+		} finally {
+			verifiedIndex.save();
+		}
+	}
+
+	private static void downloadAssets(Project project, Collection<AssetObject> toDownload, Path objects, VerifiedAssetIndex verifiedIndex) throws IOException {
+		final String resourcesBase = MirrorUtil.getResourcesBase(project);
+		final ProgressLoggerHelper progressLogger = ProgressLoggerHelper.getProgressFactory(project, MinecraftAssetsProvider.class.getName());
+		final AtomicInteger downloaded = new AtomicInteger();
+		final List<CompletableFuture<Void>> futures = new ArrayList<>(toDownload.size());
 
+		progressLogger.start("Downloading assets...", "assets");
+
+		try {
+			// Requests are queued from this thread, and handled as the responses arrive
+			for (AssetObject object : toDownload) {
+				final String sha1 = object.hash();
+				final URL url = new URL(resourcesBase + sha1.substring(0, 2) + "/" + sha1);
+				final Path file = getObjectPath(objects, sha1);
+				// Download to a temp file first so that a partial file never ends up in the objects directory
+				final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+				// The body is hashed as it is written, so it must not be compressed
+				final HttpRequest request = DownloadService.request(url).setHeader("Accept-Encoding", "identity").build();
+
+				futures.add(DownloadService.sendAsync(request, DownloadService.ofHashedFile(tempFile)).thenAccept(response -> {
 					try {
-						HashedDownloadUtil.downloadIfInvalid(new URL(MirrorUtil.getResourcesBase(project) + sha1.substring(0, 2) + "/" + sha1), file, sha1, project.getLogger(), true, () -> {
-							ProgressLoggerHelper logger = loggers.pollFirst();
-
-							if (logger == null) {
-								//Create a new logger if we need one
-								progressLogger[0] = ProgressLoggerHelper.getProgressFactory(project, MinecraftAssetsProvider.class.getName());
-								progressLogger[0].start("Downloading assets...", "assets");
-							} else {
-								// use a free logger if we can
-								progressLogger[0] = logger;
-							}
-
-							project.getLogger().debug("downloading asset " + assetName[0]);
-							progressLogger[0].progress(String.format("%-30.30s", assetName[0]) + " - " + sha1);
-						});
+						commitAsset(url, response, tempFile, file, sha1);
+						verifiedIndex.markVerified(sha1, file);
 					} catch (IOException e) {
-						throw new RuntimeException("Failed to download: " + assetName[0], e);
+						throw new UncheckedIOException(e);
 					}
 
-					if (progressLogger[0] != null) {
-						//Give this logger back if we used it
-						loggers.add(progressLogger[0]);
+					final int count = downloaded.incrementAndGet();
+
+					synchronized (progressLogger) {
+						progressLogger.progress("%d/%d assets".formatted(count, toDownload.size()));
 					}
-				});
+				}));
 			}
-		}
 
-		project.getLogger().info("Took " + stopwatch.stop() + " to iterate " + parent.size() + " asset index.");
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			final Throwable cause = e.getCause() instanceof UncheckedIOException uncheckedIOException ? uncheckedIOException.getCause() : e.getCause();
+			throw new IOException("Failed to download assets", cause);
+		} finally {
+			progressLogger.completed();
+		}
+	}
 
-		//Wait for the assets to all download
-		executor.shutdown();
+	private static void commitAsset(URL url, HttpResponse<String> response, Path tempFile, Path file, String sha1) throws IOException {
+		if (!DownloadService.isSuccess(response)) {
+			throw new IOException("HTTP " + response.statusCode() + " for " + url);
+		}
 
-		try {
-			if (executor.awaitTermination(2, TimeUnit.HOURS)) {
-				executor.shutdownNow();
-			}
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
+		if (!sha1.equals(response.body())) {
+			Files.deleteIfExists(tempFile);
+			throw new IOException(String.format("Downloaded %s and got unexpected hash of %s expected %s", url, response.body(), sha1));
 		}
 
-		loggers.forEach(ProgressLoggerHelper::completed);
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static Path getObjectPath(Path objects, String sha1) {
+		return objects.resolve(sha1.substring(0, 2)).resolve(sha1);
 	}
 }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.configuration.providers.minecraft.assets;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.FileSystemUtil;
+
+/**
+ * An on disk index of the asset objects that have already been downloaded and verified, keyed by their hash.
+ *
+ * <p>An object is trusted without being hashed again as long as its size and last modified time still match the index,
+ * this avoids reading thousands of files on every build.
+ */
+public final class VerifiedAssetIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(VerifiedAssetIndex.class);
+	private static final TypeReference<Map<String, Entry>> TYPE = new TypeReference<>() { };
+
+	private final Path path;
+	private final Map<String, Entry> entries;
+	private volatile boolean dirty = false;
+	private volatile boolean cleared = false;
+
+	private VerifiedAssetIndex(Path path, Map<String, Entry> entries) {
+		this.path = path;
+		this.entries = entries;
+	}
+
+	public static VerifiedAssetIndex load(Path path) {
+		return new VerifiedAssetIndex(path, new ConcurrentHashMap<>(readIndex(path)));
+	}
+
+	private static Map<String, Entry> readIndex(Path path) {
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, TYPE);
+		} catch (NoSuchFileException ignored) {
+			// First run
+			return Collections.emptyMap();
+		} catch (IOException e) {
+			// Everything will be verified again
+			LOGGER.warn("Failed to read verified asset index {}", path, e);
+			return Collections.emptyMap();
+		}
+	}
+
+	public boolean isVerified(String hash, Path file) {
+		final Entry entry = entries.get(hash);
+
+		if (entry == null) {
+			return false;
+		}
+
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			return attributes.size() == entry.size() && attributes.lastModifiedTime().toMillis() == entry.lastModified();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public void markVerified(String hash, Path file) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		entries.put(hash, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis()));
+		dirty = true;
+	}
+
+	public void clear() {
+		entries.clear();
+		cleared = true;
+		dirty = true;
+	}
+
+	public void save() throws IOException {
+		if (!dirty) {
+			return;
+		}
+
+		// Keep what other builds may have verified since this one started, unless this build no longer trusts them
+		final Map<String, Entry> merged = new TreeMap<>(cleared ? Collections.emptyMap() : readIndex(path));
+		merged.putAll(entries);
+
+		final Path tempFile = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+		Files.createDirectories(path.getParent());
+
+		try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			LoomGradlePlugin.OBJECT_MAPPER.writeValue(writer, merged);
+		}
+
+		FileSystemUtil.replaceAtomically(tempFile, path);
+		dirty = false;
+	}
+
+	public record Entry(long size, long lastModified) {
+	}
+}
@@ -40,7 +40,7 @@ import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.SignatureFixerApplyVisitor;
 import net.fabricmc.loom.util.TinyRemapperHelper;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
+import net.fabricmc.loom.util.zip.ZipOutputConsumer;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvider> implements MappedMinecraftProvider.ProviderImpl {
@@ -127,13 +127,10 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 			configureRemapper(remappedJars, builder);
 		});
 
-		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJar()).build()) {
+		try (ZipOutputConsumer outputConsumer = new ZipOutputConsumer(remappedJars.outputJar())) {
 			outputConsumer.addNonClassFiles(remappedJars.inputJar());
-			remapper.readClassPath(TinyRemapperHelper.getMinecraftDependencies(project));
-
-			for (Path path : remappedJars.remapClasspath()) {
-				remapper.readClassPath(path);
-			}
+			remapper.readClassPath(TinyRemapperHelper.getClasspathAbi(project, TinyRemapperHelper.getMinecraftDependencies(project)));
+			remapper.readClassPath(TinyRemapperHelper.getClasspathAbi(project, remappedJars.remapClasspath()));
 
 			remapper.readInputs(remappedJars.inputJar());
 			remapper.apply(outputConsumer);
@@ -24,9 +24,7 @@
 
 package net.fabricmc.loom.decompilers.cfr;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -46,7 +44,7 @@ import org.benf.cfr.reader.util.output.DelegatingDumper;
 import org.benf.cfr.reader.util.output.Dumper;
 
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
-import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingsCache;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -64,10 +62,11 @@ public class CFRObfuscationMapping extends NullMapping {
 	}
 
 	private static MappingTree readMappings(Path input) {
-		try (BufferedReader reader = Files.newBufferedReader(input)) {
+		try {
 			MemoryMappingTree mappingTree = new MemoryMappingTree();
 			MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString());
-			MappingReader.read(reader, nsSwitch);
+			// The mappings may be a one-off temp file, only use a binary copy that was already written for the project mappings
+			BinaryMappingsCache.read(input, false).accept(nsSwitch);
 
 			return mappingTree;
 		} catch (IOException e) {
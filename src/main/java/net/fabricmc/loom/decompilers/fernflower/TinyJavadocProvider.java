@@ -24,10 +24,8 @@
 
 package net.fabricmc.loom.decompilers.fernflower;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,7 +37,7 @@ import org.objectweb.asm.Opcodes;
 
 import net.fabricmc.fernflower.api.IFabricJavadocProvider;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
-import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingsCache;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -166,10 +164,11 @@ public class TinyJavadocProvider implements IFabricJavadocProvider {
 	}
 
 	private static MappingTree readMappings(File input) {
-		try (BufferedReader reader = Files.newBufferedReader(input.toPath())) {
+		try {
 			MemoryMappingTree mappingTree = new MemoryMappingTree();
 			MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString());
-			MappingReader.read(reader, nsSwitch);
+			// The mappings may be a one-off temp file, only use a binary copy that was already written for the project mappings
+			BinaryMappingsCache.read(input.toPath(), false).accept(nsSwitch);
 
 			return mappingTree;
 		} catch (IOException e) {
@@ -0,0 +1,49 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.gradle.api.tasks.TaskAction;
+
+import net.fabricmc.loom.util.ArtifactStore;
+import net.fabricmc.loom.util.ClasspathAbiCache;
+import net.fabricmc.loom.util.DownloadUtil;
+
+public class CleanArtifactStoreTask extends AbstractLoomTask {
+	@TaskAction
+	public void cleanArtifactStore() throws IOException {
+		Path userCache = getExtension().getFiles().getUserCache().toPath();
+		ArtifactStore store = ArtifactStore.create(userCache);
+		ArtifactStore.GarbageCollection result = store.collectGarbage();
+
+		getProject().getLogger().lifecycle("Removed {} unused artifacts ({}), {} remaining", result.removedObjects(), DownloadUtil.toNiceSize(result.freedBytes()), result.remainingObjects());
+
+		ClasspathAbiCache.GarbageCollection abiResult = ClasspathAbiCache.create(userCache).collectGarbage();
+
+		getProject().getLogger().lifecycle("Removed {} stale classpath copies ({}), {} remaining", abiResult.removedCopies(), DownloadUtil.toNiceSize(abiResult.freedBytes()), abiResult.remainingCopies());
+	}
+}
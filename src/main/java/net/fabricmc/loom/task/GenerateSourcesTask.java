@@ -26,7 +26,6 @@ package net.fabricmc.loom.task;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
@@ -65,6 +64,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.accesswidener.TransitiveAccessWidenerMappingsProcessor;
 import net.fabricmc.loom.configuration.ifaceinject.InterfaceInjectionProcessor;
 import net.fabricmc.loom.decompilers.LineNumberRemapper;
+import net.fabricmc.loom.task.service.MappingTreeService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.IOStringConsumer;
@@ -74,7 +74,7 @@ import net.fabricmc.loom.util.gradle.ThreadedSimpleProgressLogger;
 import net.fabricmc.loom.util.gradle.WorkerDaemonClientsManagerHelper;
 import net.fabricmc.loom.util.ipc.IPCClient;
 import net.fabricmc.loom.util.ipc.IPCServer;
-import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.loom.util.service.SharedServiceManager;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.format.Tiny2Writer;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -311,14 +311,6 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	private Path getMappings() {
 		Path inputMappings = getExtension().getMappingsProvider().tinyMappings;
 
-		MemoryMappingTree mappingTree = new MemoryMappingTree();
-
-		try (Reader reader = Files.newBufferedReader(inputMappings, StandardCharsets.UTF_8)) {
-			MappingReader.read(reader, new MappingSourceNsSwitch(mappingTree, MappingsNamespace.INTERMEDIARY.toString()));
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to read mappings", e);
-		}
-
 		final List<MappingsProcessor> mappingsProcessors = new ArrayList<>();
 
 		if (getExtension().getEnableTransitiveAccessWideners().get()) {
@@ -333,6 +325,15 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 			return inputMappings;
 		}
 
+		// The processors modify the mappings, so they get their own copy of the shared tree
+		MemoryMappingTree mappingTree = new MemoryMappingTree();
+
+		try {
+			MappingTreeService.getMappingTree(SharedServiceManager.get(getProject()), inputMappings).accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.INTERMEDIARY.toString()));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read mappings", e);
+		}
+
 		boolean transformed = false;
 
 		for (MappingsProcessor mappingsProcessor : mappingsProcessors) {
@@ -59,6 +59,10 @@ public final class LoomTasks {
 		tasks.register("downloadAssets", DownloadAssetsTask.class, t -> {
 			t.setDescription("Downloads required assets for Fabric.");
 		});
+		tasks.register("cleanArtifactStore", CleanArtifactStoreTask.class, t -> {
+			t.setDescription("Removes artifacts that are no longer used by any project from the shared artifact store, and stale classpath copies made for remapping.");
+			t.setGroup(Constants.TaskGroup.FABRIC);
+		});
 		tasks.register("generateDLIConfig", GenerateDLIConfigTask.class, t -> {
 			t.setDescription("Generate the DevLaunchInjector config file");
 		});
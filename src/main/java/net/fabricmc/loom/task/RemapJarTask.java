@@ -29,13 +29,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 import java.util.jar.Manifest;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -53,6 +52,7 @@ import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,7 +70,7 @@ import net.fabricmc.loom.task.service.TinyRemapperService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.service.UnsafeWorkQueueHelper;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
+import net.fabricmc.loom.util.zip.ZipOutputConsumer;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public abstract class RemapJarTask extends AbstractRemapJarTask {
@@ -219,12 +219,27 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 				tinyRemapper = tinyRemapperService.getTinyRemapperForRemapping();
 
-				remap();
-				remapAccessWidener();
-				addRefmaps();
-				addNestedJars();
-				modifyJarManifest();
-				rewriteJar();
+				final boolean isReproducibleFileOrder = getParameters().getArchiveReproducibleFileOrder().get();
+				final boolean isPreserveFileTimestamps = getParameters().getArchivePreserveFileTimestamps().get();
+
+				// All the post-processing is applied while the remapped jar is written, so the output is only written once.
+				try (ZipOutputConsumer outputConsumer = new ZipOutputConsumer(outputFile, isReproducibleFileOrder, isPreserveFileTimestamps)) {
+					final String accessWidenerPath = remapAccessWidener(outputConsumer);
+					addRefmaps(outputConsumer);
+					final boolean nestJars = addNestedJars(outputConsumer);
+					modifyJarManifest(outputConsumer);
+
+					outputConsumer.addNonClassFiles(inputFile);
+					tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
+					outputConsumer.close();
+
+					if (accessWidenerPath != null && !outputConsumer.wasTransformed(accessWidenerPath)) {
+						throw new NoSuchFileException(accessWidenerPath);
+					}
+
+					Preconditions.checkState(!nestJars || JarNester.didNestJars(outputConsumer), "Failed to transform fabric.mod.json");
+					Preconditions.checkState(outputConsumer.wasTransformed(MANIFEST_PATH), "Did not transform any jar manifest");
+				}
 
 				LOGGER.debug("Finished remapping {}", inputFile);
 			} catch (Exception e) {
@@ -238,24 +253,17 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			}
 		}
 
-		private void remap() throws IOException {
-			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(outputFile).build()) {
-				outputConsumer.addNonClassFiles(inputFile);
-				tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
-			}
-		}
-
-		private void remapAccessWidener() throws IOException {
-			final AccessWidenerFile accessWidenerFile = AccessWidenerFile.fromModJar(inputFile);
+		@Nullable
+		private String remapAccessWidener(ZipOutputConsumer outputConsumer) throws IOException {
+			final AccessWidenerFile accessWidenerFile = AccessWidenerFile.fromModJar(inputFile, tinyRemapperService.getCentralDirectoryCache());
 
 			if (accessWidenerFile == null) {
-				return;
+				return null;
 			}
 
-			byte[] remapped = remapAccessWidener(accessWidenerFile.content());
-
-			// Finally, replace the output with the remaped aw
-			ZipUtils.replace(outputFile, accessWidenerFile.path(), remapped);
+			// Replace the aw in the output with the remapped one
+			outputConsumer.transform(accessWidenerFile.path(), bytes -> remapAccessWidener(accessWidenerFile.content()));
+			return accessWidenerFile.path();
 		}
 
 		private byte[] remapAccessWidener(byte[] input) {
@@ -274,19 +282,20 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			return writer.write();
 		}
 
-		private void addNestedJars() {
+		private boolean addNestedJars(ZipOutputConsumer outputConsumer) {
 			FileCollection nestedJars = getParameters().getNestedJars();
 
 			if (nestedJars.isEmpty()) {
 				LOGGER.info("No jars to nest");
-				return;
+				return false;
 			}
 
-			JarNester.nestJars(nestedJars.getFiles(), outputFile.toFile(), LOGGER);
+			JarNester.nestJars(nestedJars.getFiles(), inputFile.toFile(), outputConsumer, tinyRemapperService.getCentralDirectoryCache(), LOGGER);
+			return true;
 		}
 
-		private void modifyJarManifest() throws IOException {
-			int count = ZipUtils.transform(outputFile, Map.of(MANIFEST_PATH, bytes -> {
+		private void modifyJarManifest(ZipOutputConsumer outputConsumer) {
+			outputConsumer.transform(MANIFEST_PATH, bytes -> {
 				var manifest = new Manifest(new ByteArrayInputStream(bytes));
 
 				getParameters().getJarManifestService().get().apply(manifest);
@@ -295,24 +304,24 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 				ByteArrayOutputStream out = new ByteArrayOutputStream();
 				manifest.write(out);
 				return out.toByteArray();
-			}));
-
-			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
+			});
 		}
 
-		private void addRefmaps() throws IOException {
+		private void addRefmaps(ZipOutputConsumer outputConsumer) {
 			if (getParameters().getUseMixinExtension().get()) {
 				return;
 			}
 
 			for (RemapParams.RefmapData refmapData : getParameters().getMixinData().get()) {
-				int transformed = ZipUtils.transformJson(JsonObject.class, outputFile, refmapData.mixinConfigs().stream().collect(Collectors.toMap(s -> s, s -> json -> {
-					if (!json.has("refmap")) {
-						json.addProperty("refmap", refmapData.refmapName());
-					}
+				for (String mixinConfig : refmapData.mixinConfigs()) {
+					outputConsumer.transform(mixinConfig, ZipUtils.jsonTransformer(JsonObject.class, json -> {
+						if (!json.has("refmap")) {
+							json.addProperty("refmap", refmapData.refmapName());
+						}
 
-					return json;
-				})));
+						return json;
+					}));
+				}
 			}
 		}
 	}
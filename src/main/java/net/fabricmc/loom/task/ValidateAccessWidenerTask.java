@@ -30,14 +30,18 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.TaskAction;
 
@@ -46,6 +50,7 @@ import net.fabricmc.accesswidener.AccessWidenerReader;
 import net.fabricmc.accesswidener.AccessWidenerVisitor;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.util.ClasspathAbiCache;
 import net.fabricmc.tinyremapper.TinyRemapper;
 import net.fabricmc.tinyremapper.api.TrEnvironment;
 
@@ -57,12 +62,17 @@ public abstract class ValidateAccessWidenerTask extends DefaultTask {
 	@InputFiles
 	public abstract ConfigurableFileCollection getTargetJars();
 
+	// Only holds copies of the target jars, so it does not affect the result
+	@Internal
+	public abstract DirectoryProperty getUserCache();
+
 	@Inject
 	public ValidateAccessWidenerTask() {
 		final LoomGradleExtension extension = LoomGradleExtension.get(getProject());
 
 		getAccessWidener().convention(extension.getAccessWidenerPath()).finalizeValueOnRead();
 		getTargetJars().from(extension.getMinecraftJarsCollection(MappingsNamespace.NAMED));
+		getUserCache().fileValue(extension.getFiles().getUserCache()).finalizeValueOnRead();
 
 		// Ignore outputs for up-to-date checks as there aren't any (so only inputs are checked)
 		getOutputs().upToDateWhen(task -> true);
@@ -72,8 +82,13 @@ public abstract class ValidateAccessWidenerTask extends DefaultTask {
 	public void run() {
 		final TinyRemapper tinyRemapper = TinyRemapper.newRemapper().build();
 
-		for (File file : getTargetJars().getFiles()) {
-			tinyRemapper.readClassPath(file.toPath());
+		try {
+			final ClasspathAbiCache classpathAbiCache = ClasspathAbiCache.create(getUserCache().get().getAsFile().toPath());
+			final List<Path> targetJars = getTargetJars().getFiles().stream().map(File::toPath).toList();
+			tinyRemapper.readClassPath(classpathAbiCache.getAll(targetJars).stream().map(ClasspathAbiCache.Abi::path).toArray(Path[]::new));
+		} catch (IOException e) {
+			tinyRemapper.finish();
+			throw new UncheckedIOException("Failed to read minecraft jars", e);
 		}
 
 		final AccessWidenerValidator validator = new AccessWidenerValidator(tinyRemapper.getEnvironment());
@@ -82,7 +97,7 @@ public abstract class ValidateAccessWidenerTask extends DefaultTask {
 		try (BufferedReader reader = Files.newBufferedReader(getAccessWidener().get().getAsFile().toPath(), StandardCharsets.UTF_8)) {
 			accessWidenerReader.read(reader, "named");
 		} catch (AccessWidenerFormatException e) {
-			getProject().getLogger().error("Failed to validate access-widener file {} on line {}: {}", getAccessWidener().get().getAsFile().getName(), e.getLineNumber(), e.getMessage());
+			getLogger().error("Failed to validate access-widener file {} on line {}: {}", getAccessWidener().get().getAsFile().getName(), e.getLineNumber(), e.getMessage());
 			throw e;
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read access widener", e);
@@ -0,0 +1,70 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingsCache;
+import net.fabricmc.loom.util.service.SharedService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+
+/**
+ * Holds the one mapping tree that is read from a mappings file during a build, so that everything that needs the
+ * mappings shares it rather than reading a copy of its own.
+ *
+ * <p>The returned tree is shared and must not be modified, it is safe to read from multiple threads. Anything that
+ * needs to modify the mappings or change the namespaces should visit it into a new tree.
+ */
+public final class MappingTreeService implements SharedService {
+	private final Path mappings;
+	private MemoryMappingTree mappingTree;
+
+	private MappingTreeService(Path mappings) {
+		this.mappings = mappings;
+	}
+
+	public static MemoryMappingTree getMappingTree(SharedServiceManager sharedServiceManager, Path mappings) throws IOException {
+		final Path path = mappings.toAbsolutePath().normalize();
+		// The file can be replaced during a build, such as after the mappings dependency changes
+		final String id = "MappingTree:%s:%d:%d".formatted(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+		return sharedServiceManager.getOrCreateService(id, () -> new MappingTreeService(path)).get();
+	}
+
+	private synchronized MemoryMappingTree get() throws IOException {
+		if (mappingTree == null) {
+			mappingTree = BinaryMappingsCache.read(mappings);
+		}
+
+		return mappingTree;
+	}
+
+	@Override
+	public synchronized void close() {
+		mappingTree = null;
+	}
+}
@@ -32,10 +32,9 @@ import org.gradle.api.Project;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
-import net.fabricmc.loom.util.TinyRemapperHelper;
+import net.fabricmc.loom.util.MappingTable;
 import net.fabricmc.loom.util.service.SharedService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
-import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.IMappingProvider;
 
@@ -49,19 +48,25 @@ public final class MappingsService implements SharedService {
 	public static synchronized MappingsService create(SharedServiceManager sharedServiceManager, String name, Path mappingsFile, String from, String to, boolean remapLocals) {
 		final Options options = new Options(mappingsFile, from, to, remapLocals);
 		final String id = name + options.hashCode();
-		return sharedServiceManager.getOrCreateService(id, () -> new MappingsService(options));
+		return sharedServiceManager.getOrCreateService(id, () -> new MappingsService(sharedServiceManager, options));
 	}
 
 	public static MappingsService createDefault(Project project, String from, String to) {
+		return createDefault(project, from, to, false);
+	}
+
+	public static MappingsService createDefault(Project project, String from, String to, boolean remapLocals) {
 		final MappingsProviderImpl mappingsProvider = LoomGradleExtension.get(project).getMappingsProvider();
 
 		final String name = mappingsProvider.getBuildServiceName("mappingsProvider", from, to);
-		return MappingsService.create(project, name, mappingsProvider.tinyMappings, from, to, false);
+		return MappingsService.create(project, name, mappingsProvider.tinyMappings, from, to, remapLocals);
 	}
 
+	private final SharedServiceManager sharedServiceManager;
 	private final Options options;
 
-	public MappingsService(Options options) {
+	private MappingsService(SharedServiceManager sharedServiceManager, Options options) {
+		this.sharedServiceManager = sharedServiceManager;
 		this.options = options;
 	}
 
@@ -70,16 +75,13 @@ public final class MappingsService implements SharedService {
 
 	public synchronized IMappingProvider getMappingsProvider() {
 		if (mappingProvider == null) {
-			try {
-				mappingProvider = TinyRemapperHelper.create(
-						options.mappingsFile(),
-						options.from(),
-						options.to(),
-						options.remapLocals()
-				);
-			} catch (IOException e) {
-				throw new UncheckedIOException("Failed to read mappings from: " + options.mappingsFile(), e);
-			}
+			// Shares the mapping tree rather than reading the file again, and the table with every remapper using this service
+			mappingProvider = MappingTable.create(
+					getMemoryMappingTree(),
+					options.from(),
+					options.to(),
+					options.remapLocals()
+			);
 		}
 
 		return mappingProvider;
@@ -87,10 +89,8 @@ public final class MappingsService implements SharedService {
 
 	public synchronized MemoryMappingTree getMemoryMappingTree() {
 		if (memoryMappingTree == null) {
-			memoryMappingTree = new MemoryMappingTree();
-
 			try {
-				MappingReader.read(options.mappingsFile(), memoryMappingTree);
+				memoryMappingTree = MappingTreeService.getMappingTree(sharedServiceManager, options.mappingsFile());
 			} catch (IOException e) {
 				throw new UncheckedIOException("Failed to read mappings from: " + options.mappingsFile(), e);
 			}
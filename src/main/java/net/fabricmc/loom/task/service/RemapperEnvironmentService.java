@@ -0,0 +1,120 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.gradle.api.Project;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.util.MappingTreeRemapper;
+import net.fabricmc.loom.util.TinyRemapperHelper;
+import net.fabricmc.loom.util.service.SharedService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * Looks up the names of classes and members in another namespace, for everything that remaps names rather than jars.
+ *
+ * <p>{@link #getMappingRemapper()} only reads the mappings, and only falls back to a TinyRemapper environment with the
+ * intermediary Minecraft jars and libraries on the classpath for members that may be inherited. The environment is only
+ * built the first time it is needed, and then shared with everything else in the build that uses the same mappings and
+ * Minecraft jars.
+ */
+public final class RemapperEnvironmentService implements SharedService {
+	private final Project project;
+	private final String from;
+	private final String to;
+	private final Path[] classpath;
+
+	private TinyRemapper tinyRemapper;
+	private MappingTreeRemapper mappingRemapper;
+
+	private RemapperEnvironmentService(Project project, String from, String to, Path[] classpath) {
+		this.project = project;
+		this.from = from;
+		this.to = to;
+		this.classpath = classpath;
+	}
+
+	public static synchronized RemapperEnvironmentService getOrCreate(Project project, String from, String to) {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final List<Path> minecraftJars = extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY);
+
+		final var joiner = new StringJoiner(":");
+		joiner.add(extension.getMappingsProvider().getBuildServiceName("remapperEnvironment", from, to));
+		minecraftJars.forEach(path -> joiner.add(path.toAbsolutePath().toString()));
+
+		return SharedServiceManager.get(project).getOrCreateService(joiner.toString(), () -> {
+			final List<Path> classpath = new ArrayList<>(List.of(TinyRemapperHelper.getMinecraftDependencies(project)));
+			classpath.addAll(minecraftJars);
+			return new RemapperEnvironmentService(project, from, to, classpath.toArray(Path[]::new));
+		});
+	}
+
+	/**
+	 * @return a remapper that reads the class hierarchy from the Minecraft jars
+	 */
+	public synchronized Remapper getRemapper() {
+		if (tinyRemapper == null) {
+			try {
+				tinyRemapper = TinyRemapperHelper.getTinyRemapper(project, from, to);
+				tinyRemapper.readClassPath(TinyRemapperHelper.getClasspathAbi(project, classpath));
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to create tiny remapper for %s->%s".formatted(from, to), e);
+			}
+		}
+
+		return tinyRemapper.getEnvironment().getRemapper();
+	}
+
+	/**
+	 * @return a remapper that is backed by the mappings, which is much faster to create than {@link #getRemapper()}
+	 */
+	public synchronized Remapper getMappingRemapper() {
+		if (mappingRemapper == null) {
+			final MemoryMappingTree mappingTree = LoomGradleExtension.get(project).getMappingsProvider().getMappings();
+			mappingRemapper = MappingTreeRemapper.create(mappingTree, from, to, this::getRemapper);
+		}
+
+		return mappingRemapper;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (tinyRemapper != null) {
+			tinyRemapper.finish();
+			tinyRemapper = null;
+		}
+	}
+}
@@ -42,6 +42,7 @@ import net.fabricmc.loom.kotlin.remapping.KotlinMetadataTinyRemapperExtension;
 import net.fabricmc.loom.task.AbstractRemapJarTask;
 import net.fabricmc.loom.util.service.SharedService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
 import net.fabricmc.tinyremapper.IMappingProvider;
 import net.fabricmc.tinyremapper.InputTag;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -55,6 +56,7 @@ public class TinyRemapperService implements SharedService {
 		final SharedServiceManager sharedServiceManager = SharedServiceManager.get(project);
 		final boolean legacyMixin = extension.getMixin().getUseLegacyMixinAp().get();
 		final boolean useKotlinExtension = project.getPluginManager().hasPlugin("org.jetbrains.kotlin.jvm");
+		final CentralDirectoryCache centralDirectoryCache = CentralDirectoryCache.getInstance(sharedServiceManager);
 
 		// Generates an id that is used to share the remapper across projects. This tasks in the remap jar task name to handle custom remap jar tasks separately.
 		final var joiner = new StringJoiner(":");
@@ -79,7 +81,7 @@ public class TinyRemapperService implements SharedService {
 				mappings.add(MixinMappingsService.getService(SharedServiceManager.get(project)).getMappingProvider(from, to));
 			}
 
-			return new TinyRemapperService(mappings, !legacyMixin, useKotlinExtension);
+			return new TinyRemapperService(mappings, !legacyMixin, useKotlinExtension, centralDirectoryCache);
 		});
 
 		service.readClasspath(remapJarTask.getClasspath().getFiles().stream().map(File::toPath).toList());
@@ -88,12 +90,14 @@ public class TinyRemapperService implements SharedService {
 	}
 
 	private TinyRemapper tinyRemapper;
+	private final CentralDirectoryCache centralDirectoryCache;
 	private final Map<String, InputTag> inputTagMap = new HashMap<>();
 	private final HashSet<Path> classpath = new HashSet<>();
 	// Set to true once remapping has started, once set no inputs can be read.
 	private boolean isRemapping = false;
 
-	public TinyRemapperService(List<IMappingProvider> mappings, boolean useMixinExtension, boolean useKotlinExtension) {
+	public TinyRemapperService(List<IMappingProvider> mappings, boolean useMixinExtension, boolean useKotlinExtension, CentralDirectoryCache centralDirectoryCache) {
+		this.centralDirectoryCache = centralDirectoryCache;
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper();
 
 		for (IMappingProvider provider : mappings) {
@@ -111,6 +115,10 @@ public class TinyRemapperService implements SharedService {
 		tinyRemapper = builder.build();
 	}
 
+	public CentralDirectoryCache getCentralDirectoryCache() {
+		return centralDirectoryCache;
+	}
+
 	public synchronized InputTag getOrCreateTag(Path file) {
 		InputTag tag = inputTagMap.get(file.toAbsolutePath().toString());
 
@@ -0,0 +1,248 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * A content addressed store of downloaded artifacts shared by all projects and Minecraft versions, keyed by sha1.
+ *
+ * <p>Files in the per version layout are hard linked to the stored object, so identical files only take up space once.
+ * When a hard link cannot be created (e.g. the store is on another volume) the object is copied instead.
+ *
+ * <p>The index records the size of each object and the paths it has been linked to, objects are only removed by
+ * {@link #collectGarbage()} once none of those paths exist anymore.
+ */
+public final class ArtifactStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactStore.class);
+	private static final TypeReference<TreeMap<String, Entry>> TYPE = new TypeReference<>() { };
+	// FileChannel locks are held by the whole JVM, so threads must also be kept out of each other's way.
+	private static final Object JVM_LOCK = new Object();
+
+	private final Path dir;
+
+	private ArtifactStore(Path dir) {
+		this.dir = dir;
+	}
+
+	public static ArtifactStore create(Path userCache) {
+		return new ArtifactStore(userCache.resolve("artifacts"));
+	}
+
+	public Path getObject(String sha1) {
+		return dir.resolve("objects").resolve(sha1.substring(0, 2)).resolve(sha1);
+	}
+
+	/**
+	 * Links the stored object with the given hash to the target, replacing any existing file.
+	 *
+	 * @return false if the store does not contain the object
+	 */
+	public boolean link(String sha1, Path target) throws IOException {
+		final Path object = getObject(sha1);
+
+		return withIndex(index -> {
+			final Entry entry = index.get(sha1);
+
+			if (entry == null || !Files.exists(object)) {
+				return false;
+			}
+
+			if (Files.size(object) != entry.size()) {
+				// Something has written to one of the links, it can no longer be trusted
+				LOGGER.warn("Removing modified artifact {} from the store", object);
+				Files.delete(object);
+				index.remove(sha1);
+				return false;
+			}
+
+			final Path tempFile = target.resolveSibling(target.getFileName() + ".link");
+			Files.createDirectories(target.getParent());
+			Files.deleteIfExists(tempFile);
+			linkOrCopy(object, tempFile);
+			FileSystemUtil.replaceAtomically(tempFile, target);
+
+			entry.references().add(target.toAbsolutePath().toString());
+			return true;
+		});
+	}
+
+	/**
+	 * Adds a file whose hash has already been verified to the store, the file is then tracked as a reference to it.
+	 */
+	public void store(String sha1, Path file) throws IOException {
+		final Path object = getObject(sha1);
+
+		withIndex(index -> {
+			Entry entry = index.get(sha1);
+
+			if (entry == null || !Files.exists(object) || !Files.isSameFile(file, object)) {
+				// The file has just been verified, so it replaces whatever may already be stored
+				final Path tempFile = object.resolveSibling(sha1 + ".link");
+				Files.createDirectories(object.getParent());
+				Files.deleteIfExists(tempFile);
+				linkOrCopy(file, tempFile);
+				FileSystemUtil.replaceAtomically(tempFile, object);
+
+				entry = new Entry(Files.size(object), entry != null ? entry.references() : Set.of());
+				index.put(sha1, entry);
+			}
+
+			entry.references().add(file.toAbsolutePath().toString());
+			return null;
+		});
+	}
+
+	/**
+	 * Forgets references to files that no longer exist and deletes the objects that are no longer referenced.
+	 */
+	public GarbageCollection collectGarbage() throws IOException {
+		return withIndex(index -> {
+			int removed = 0;
+			long freed = 0;
+
+			for (Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator(); it.hasNext(); ) {
+				final Map.Entry<String, Entry> mapEntry = it.next();
+				final Entry entry = mapEntry.getValue();
+				entry.references().removeIf(reference -> !Files.exists(Path.of(reference)));
+
+				if (!entry.references().isEmpty()) {
+					continue;
+				}
+
+				final Path object = getObject(mapEntry.getKey());
+
+				if (Files.deleteIfExists(object)) {
+					removed++;
+					freed += entry.size();
+				}
+
+				it.remove();
+			}
+
+			final Path objects = dir.resolve("objects");
+
+			if (Files.isDirectory(objects)) {
+				// Objects that were left behind by a lost index
+				try (Stream<Path> stream = Files.walk(objects)) {
+					for (Path object : stream.filter(Files::isRegularFile).toList()) {
+						if (!index.containsKey(object.getFileName().toString())) {
+							freed += Files.size(object);
+							Files.delete(object);
+							removed++;
+						}
+					}
+				}
+			}
+
+			return new GarbageCollection(removed, freed, index.size());
+		});
+	}
+
+	private static void linkOrCopy(Path existing, Path link) throws IOException {
+		try {
+			Files.createLink(link, existing);
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.debug("Failed to hard link {} to {}, copying instead", link, existing, e);
+			final Path tempFile = link.resolveSibling(link.getFileName() + ".tmp");
+			Files.copy(existing, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempFile, link);
+		}
+	}
+
+	private <T> T withIndex(IndexAction<T> action) throws IOException {
+		final Path indexFile = dir.resolve("index.json");
+		Files.createDirectories(dir);
+
+		synchronized (JVM_LOCK) {
+			try (FileChannel lockChannel = FileChannel.open(dir.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock ignored = lockChannel.lock()) {
+				final TreeMap<String, Entry> index = readIndex(indexFile);
+				final T result = action.run(index);
+
+				final Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+				try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+					LoomGradlePlugin.OBJECT_MAPPER.writeValue(writer, index);
+				}
+
+				FileSystemUtil.replaceAtomically(tempFile, indexFile);
+				return result;
+			}
+		}
+	}
+
+	private static TreeMap<String, Entry> readIndex(Path indexFile) {
+		try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, TYPE);
+		} catch (NoSuchFileException ignored) {
+			return new TreeMap<>();
+		} catch (IOException e) {
+			// Unreferenced objects will be linked again the next time they are needed
+			LOGGER.warn("Failed to read artifact store index {}", indexFile, e);
+			return new TreeMap<>();
+		}
+	}
+
+	@FunctionalInterface
+	private interface IndexAction<T> {
+		T run(TreeMap<String, Entry> index) throws IOException;
+	}
+
+	public record Entry(long size, Set<String> references) {
+		public Entry {
+			// Keep the index file in a stable order
+			references = new TreeSet<>(references);
+		}
+	}
+
+	public record GarbageCollection(int removedObjects, long freedBytes, int remainingObjects) {
+	}
+}
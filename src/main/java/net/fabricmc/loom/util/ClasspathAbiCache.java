@@ -0,0 +1,372 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.zip.RawZipEntry;
+import net.fabricmc.loom.util.zip.RawZipFile;
+import net.fabricmc.loom.util.zip.RawZipWriter;
+
+/**
+ * Caches copies of classpath jars that only contain what is needed to remap against them: the classes with their
+ * hierarchy, members and access flags. Method code, debug info and non class files are left out, which makes them much
+ * faster to read into a {@link net.fabricmc.tinyremapper.TinyRemapper} environment.
+ *
+ * <p>Each copy comes with a hash of its contents, this only changes when something that remapping depends on changes,
+ * and not for example when the code of a method changes. Private synthetic methods such as lambdas are kept in the copy,
+ * as they may have mapped names, but are left out of the hash.
+ *
+ * <p>Copies are stored in the user cache, keyed by the path of the input jar, and are recreated when its size or last
+ * modified time changes. Copies of jars that have since changed or been removed are deleted by {@link #collectGarbage()}.
+ */
+public final class ClasspathAbiCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathAbiCache.class);
+
+	private final Path dir;
+
+	private ClasspathAbiCache(Path dir) {
+		this.dir = dir;
+	}
+
+	public static ClasspathAbiCache create(Path userCache) {
+		return new ClasspathAbiCache(userCache.resolve("classpath_abi"));
+	}
+
+	/**
+	 * Returns the stripped copy of the given classpath entry, creating it if needed.
+	 *
+	 * <p>Directories and other files that are not jars are returned as is. Directories are hashed by the stripped
+	 * contents of their class files, as a change to a nested class does not change the last modified time of the
+	 * directory. Other files are hashed by their path and last modified time.
+	 */
+	public Abi get(Path input) throws IOException {
+		final String key = Hashing.sha256().hashString(input.toAbsolutePath().normalize().toString(), StandardCharsets.UTF_8).toString();
+
+		if (Files.isDirectory(input)) {
+			return new Abi(input, hashDirectory(input));
+		}
+
+		if (!Files.isRegularFile(input) || !isJar(input)) {
+			final long lastModified = Files.exists(input) ? Files.getLastModifiedTime(input).toMillis() : 0;
+			return new Abi(input, key + "-" + lastModified);
+		}
+
+		final Path jar = dir.resolve(key.substring(0, 2)).resolve(key + ".jar");
+		final Path infoFile = jar.resolveSibling(key + ".json");
+		final long size = Files.size(input);
+		final long lastModified = Files.getLastModifiedTime(input).toMillis();
+
+		final Info info = readInfo(infoFile);
+
+		if (info != null && info.inputSize() == size && info.inputLastModified() == lastModified && Files.exists(jar)) {
+			return new Abi(jar, info.hash());
+		}
+
+		Files.createDirectories(jar.getParent());
+
+		// Other builds may be creating the same copy, each one writes to its own temp file
+		final Path tempJar = Files.createTempFile(jar.getParent(), key, ".jar.tmp");
+		final String hash;
+
+		try {
+			hash = strip(input, tempJar);
+			FileSystemUtil.replaceAtomically(tempJar, jar);
+		} finally {
+			Files.deleteIfExists(tempJar);
+		}
+
+		final Path tempInfo = Files.createTempFile(jar.getParent(), key, ".json.tmp");
+
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempInfo, StandardCharsets.UTF_8)) {
+				LoomGradlePlugin.OBJECT_MAPPER.writeValue(writer, new Info(input.toAbsolutePath().normalize().toString(), size, lastModified, hash));
+			}
+
+			FileSystemUtil.replaceAtomically(tempInfo, infoFile);
+		} finally {
+			Files.deleteIfExists(tempInfo);
+		}
+
+		return new Abi(jar, hash);
+	}
+
+	/**
+	 * Returns the stripped copies of the given classpath entries, in the same order.
+	 */
+	public List<Abi> getAll(List<Path> inputs) throws IOException {
+		final List<Abi> result = new ArrayList<>(inputs.size());
+
+		for (Path input : inputs) {
+			result.add(get(input));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a hash of the given copies, that changes when any of them or their order changes.
+	 */
+	public static String combinedHash(List<Abi> abis) {
+		return Hashing.sha256().hashString(String.join(",", abis.stream().map(Abi::hash).toList()), StandardCharsets.UTF_8).toString();
+	}
+
+	/**
+	 * Returns the combined hash of the copies of the given inputs, leaving out the copy of the excluded input. A mod is not
+	 * remapped against itself, so a change to it must not count as a change to the classpath it is remapped against.
+	 */
+	public static String combinedHash(List<Path> inputs, List<Abi> abis, Path excluded) {
+		final List<Abi> remaining = new ArrayList<>(abis.size());
+
+		for (int i = 0; i < inputs.size(); i++) {
+			if (!inputs.get(i).equals(excluded)) {
+				remaining.add(abis.get(i));
+			}
+		}
+
+		return combinedHash(remaining);
+	}
+
+	/**
+	 * Deletes the copies of jars that have changed or no longer exist, they would be created again if they are used.
+	 */
+	public GarbageCollection collectGarbage() throws IOException {
+		if (!Files.isDirectory(dir)) {
+			return new GarbageCollection(0, 0, 0);
+		}
+
+		int removed = 0;
+		int remaining = 0;
+		long freed = 0;
+
+		final List<Path> files;
+
+		try (Stream<Path> stream = Files.walk(dir)) {
+			files = stream.filter(Files::isRegularFile).toList();
+		}
+
+		for (Path file : files) {
+			final String name = file.getFileName().toString();
+
+			if (!name.endsWith(".jar")) {
+				continue;
+			}
+
+			final Path infoFile = file.resolveSibling(name.substring(0, name.length() - ".jar".length()) + ".json");
+			final Info info = readInfo(infoFile);
+
+			if (info != null && info.isUpToDate()) {
+				remaining++;
+				continue;
+			}
+
+			freed += Files.size(file);
+			Files.delete(file);
+			Files.deleteIfExists(infoFile);
+			removed++;
+		}
+
+		return new GarbageCollection(removed, freed, remaining);
+	}
+
+	private static String hashDirectory(Path dir) throws IOException {
+		final MessageDigest digest = createDigest();
+		final List<Path> classes;
+
+		try (Stream<Path> stream = Files.walk(dir)) {
+			classes = stream.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".class")).sorted().toList();
+		}
+
+		for (Path path : classes) {
+			digest.update(dir.relativize(path).toString().replace(File.separatorChar, '/').getBytes(StandardCharsets.UTF_8));
+			digest.update(Hashing.sha256().hashBytes(stripClass(Files.readAllBytes(path), true)).asBytes());
+		}
+
+		return Checksum.toHex(digest.digest());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isJar(Path path) {
+		final String name = path.getFileName().toString();
+		return name.endsWith(".jar") || name.endsWith(".zip");
+	}
+
+	@Nullable
+	private static Info readInfo(Path path) {
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, Info.class);
+		} catch (NoSuchFileException ignored) {
+			return null;
+		} catch (IOException e) {
+			// The copy will be created again
+			LOGGER.warn("Failed to read classpath abi info {}", path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the classes of the input with everything but their signatures stripped, the classes are stripped and
+	 * compressed in parallel.
+	 *
+	 * @return the hash of the written classes
+	 */
+	private static String strip(Path input, Path output) throws IOException {
+		final MessageDigest digest = createDigest();
+
+		try (RawZipFile zipFile = RawZipFile.open(input)) {
+			final List<ForkJoinTask<StrippedClass>> tasks = new ArrayList<>();
+
+			for (RawZipEntry entry : zipFile.getEntries()) {
+				if (entry.isDirectory() || !entry.name().endsWith(".class")) {
+					continue;
+				}
+
+				tasks.add(ForkJoinPool.commonPool().submit(() -> {
+					try {
+						final byte[] bytes = zipFile.readAllBytes(entry);
+						final byte[] data = stripClass(bytes, false);
+						// Lambdas are kept in the copy as they can be mapped, but come and go with changes to the code
+						final byte[] hashed = stripClass(bytes, true);
+						return new StrippedClass(RawZipWriter.compress(entry.name(), data), Hashing.sha256().hashBytes(hashed).asBytes());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}));
+			}
+
+			try (RawZipWriter writer = RawZipWriter.create(output)) {
+				for (ForkJoinTask<StrippedClass> task : tasks) {
+					final StrippedClass strippedClass;
+
+					try {
+						strippedClass = task.join();
+					} catch (UncheckedIOException e) {
+						throw e.getCause();
+					}
+
+					final String name = strippedClass.entry().name();
+
+					if (writer.hasEntry(name)) {
+						// Duplicate entries, only the first one is ever read
+						continue;
+					}
+
+					digest.update(name.getBytes(StandardCharsets.UTF_8));
+					digest.update(strippedClass.hash());
+					writer.putCompressed(strippedClass.entry(), ZipReprocessorUtil.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+				}
+			} finally {
+				for (ForkJoinTask<StrippedClass> task : tasks) {
+					task.cancel(false);
+				}
+			}
+		}
+
+		return Checksum.toHex(digest.digest());
+	}
+
+	private static byte[] stripClass(byte[] input, boolean skipSyntheticPrivateMethods) {
+		final ClassReader reader = new ClassReader(input);
+		final ClassWriter writer = new ClassWriter(0);
+
+		reader.accept(new ClassVisitor(Constants.ASM_VERSION, writer) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				if (skipSyntheticPrivateMethods && (access & Opcodes.ACC_PRIVATE) != 0 && (access & Opcodes.ACC_SYNTHETIC) != 0) {
+					return null;
+				}
+
+				return super.visitMethod(access, name, descriptor, signature, exceptions);
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @param path the stripped copy, or the input itself when it is not a jar
+	 * @param hash a hash of the contents of the stripped copy
+	 */
+	public record Abi(Path path, String hash) {
+	}
+
+	private record StrippedClass(RawZipWriter.CompressedEntry entry, byte[] hash) {
+	}
+
+	public record GarbageCollection(int removedCopies, long freedBytes, int remainingCopies) {
+	}
+
+	/**
+	 * @param input the absolute path of the jar that was copied, null for copies created before it was recorded
+	 */
+	private record Info(@Nullable String input, long inputSize, long inputLastModified, String hash) {
+		boolean isUpToDate() {
+			if (input == null) {
+				return false;
+			}
+
+			final Path path = Path.of(input);
+
+			try {
+				return Files.isRegularFile(path) && Files.size(path) == inputSize && Files.getLastModifiedTime(path).toMillis() == inputLastModified;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,355 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Authenticator;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A single {@link HttpClient} shared by all downloads, so that connections (and HTTP/2 streams) are reused between requests.
+ *
+ * <p>The number of requests in flight at once is limited, {@link #downloadAll(Collection)} can be used to run independent downloads in parallel.
+ */
+public final class DownloadService {
+	private static final int MAX_IN_FLIGHT = 8;
+	private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+	private static final HttpClient HTTP_CLIENT = createHttpClient();
+	private static final Semaphore IN_FLIGHT = new Semaphore(MAX_IN_FLIGHT);
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_IN_FLIGHT, new DownloadThreadFactory());
+
+	private DownloadService() {
+	}
+
+	private static HttpClient createHttpClient() {
+		final HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.proxy(ProxySelector.getDefault())
+				.connectTimeout(Duration.ofSeconds(30));
+		final Authenticator authenticator = Authenticator.getDefault();
+
+		if (authenticator != null) {
+			// Used for proxies that require authentication, as HttpURLConnection did
+			builder.authenticator(authenticator);
+		}
+
+		return builder.build();
+	}
+
+	public static HttpRequest.Builder request(URL url) throws IOException {
+		try {
+			return HttpRequest.newBuilder(url.toURI())
+					.timeout(TIMEOUT)
+					.header("Accept-Encoding", "gzip");
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid url: " + url, e);
+		}
+	}
+
+	/**
+	 * Sends the request and passes the response to the handler, the body stream is closed once the handler returns.
+	 */
+	public static <T> T send(HttpRequest request, ResponseHandler<T> handler) throws IOException {
+		try {
+			IN_FLIGHT.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to download " + request.uri());
+		}
+
+		try {
+			final HttpResponse<InputStream> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+			try (InputStream ignored = response.body()) {
+				return handler.handle(response);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while downloading " + request.uri());
+		} finally {
+			IN_FLIGHT.release();
+		}
+	}
+
+	/**
+	 * Sends the request asynchronously.
+	 *
+	 * <p>Blocks while the maximum number of requests are in flight, so that a large number of requests can be queued from a single thread.
+	 */
+	public static <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+		try {
+			IN_FLIGHT.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to download " + request.uri());
+		}
+
+		try {
+			return HTTP_CLIENT.sendAsync(request, bodyHandler)
+					.whenComplete((response, throwable) -> IN_FLIGHT.release());
+		} catch (RuntimeException e) {
+			IN_FLIGHT.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * A body handler that writes a successful response body to the file, computing its sha1 as the bytes arrive.
+	 *
+	 * <p>The body of the response is the hex encoded sha1, or null when the response was not successful.
+	 * The request must not accept a compressed response, as the body is written as is.
+	 */
+	public static HttpResponse.BodyHandler<String> ofHashedFile(Path file) {
+		return responseInfo -> {
+			if (responseInfo.statusCode() < 200 || responseInfo.statusCode() > 299) {
+				return HttpResponse.BodySubscribers.replacing(null);
+			}
+
+			return new HashingFileSubscriber(file);
+		};
+	}
+
+	/**
+	 * Runs the downloads in parallel, and waits for all of them to complete.
+	 *
+	 * <p>The downloads run on a small fixed pool, they must not call this method themselves.
+	 *
+	 * @throws IOException the first failure, with any other failures added as suppressed exceptions
+	 */
+	public static void downloadAll(Collection<? extends DownloadAction> downloads) throws IOException {
+		if (downloads.size() == 1) {
+			downloads.iterator().next().download();
+			return;
+		}
+
+		final List<Future<Void>> futures = new ArrayList<>(downloads.size());
+
+		for (DownloadAction download : downloads) {
+			futures.add(EXECUTOR.submit(() -> {
+				download.download();
+				return null;
+			}));
+		}
+
+		IOException exception = null;
+
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				futures.forEach(f -> f.cancel(true));
+				throw new InterruptedIOException("Interrupted while downloading");
+			} catch (ExecutionException e) {
+				final IOException cause = e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+
+				if (exception == null) {
+					exception = cause;
+				} else {
+					exception.addSuppressed(cause);
+				}
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * @return the body of the response, decompressed if the server sent it gzipped
+	 */
+	public static InputStream getBody(HttpResponse<InputStream> response) throws IOException {
+		if (response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent()) {
+			return new GZIPInputStream(response.body());
+		}
+
+		return response.body();
+	}
+
+	public static boolean isSuccess(HttpResponse<?> response) {
+		return response.statusCode() >= 200 && response.statusCode() <= 299;
+	}
+
+	/**
+	 * @return the value of the Last-Modified header in milliseconds, or -1 if the server did not send a valid one
+	 */
+	public static long getLastModified(HttpResponse<?> response) {
+		return response.headers().firstValue("Last-Modified").map(value -> {
+			try {
+				return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			} catch (DateTimeParseException e) {
+				return -1L;
+			}
+		}).orElse(-1L);
+	}
+
+	public static String formatHttpDate(long time) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+	}
+
+	@FunctionalInterface
+	public interface ResponseHandler<T> {
+		T handle(HttpResponse<InputStream> response) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface DownloadAction {
+		void download() throws IOException;
+	}
+
+	/**
+	 * Writes the body to a file while updating a sha1 digest with the same buffers, so the file never has to be read back to be verified.
+	 */
+	private static final class HashingFileSubscriber implements HttpResponse.BodySubscriber<String> {
+		private final Path file;
+		private final MessageDigest digest;
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+		private FileChannel channel;
+		private Flow.Subscription subscription;
+
+		private HashingFileSubscriber(Path file) {
+			this.file = file;
+
+			try {
+				this.digest = MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+
+			try {
+				Files.createDirectories(file.getParent());
+				channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				subscription.cancel();
+				result.completeExceptionally(e);
+				return;
+			}
+
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> buffers) {
+			try {
+				for (ByteBuffer buffer : buffers) {
+					digest.update(buffer.duplicate());
+
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+			} catch (IOException e) {
+				subscription.cancel();
+				close();
+				result.completeExceptionally(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			close();
+			result.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				channel.close();
+				result.complete(Checksum.toHex(digest.digest()));
+			} catch (IOException e) {
+				result.completeExceptionally(e);
+			}
+		}
+
+		@Override
+		public CompletionStage<String> getBody() {
+			return result;
+		}
+
+		private void close() {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+			} catch (IOException ignored) {
+				// Already failing
+			}
+		}
+	}
+
+	private static class DownloadThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "Loom download thread " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
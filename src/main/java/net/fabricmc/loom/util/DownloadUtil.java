@@ -26,11 +26,10 @@ package net.fabricmc.loom.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.GZIPInputStream;
 
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
@@ -62,84 +61,82 @@ public class DownloadUtil {
 	 * @throws IOException If an exception occurs during the process
 	 */
 	public static void downloadIfChanged(URL from, File to, Logger logger, boolean quiet) throws IOException {
-		HttpURLConnection connection = (HttpURLConnection) from.openConnection();
-
 		if (LoomGradlePlugin.refreshDeps) {
 			getETagFile(to).delete();
 			to.delete();
 		}
 
+		HttpRequest.Builder request = DownloadService.request(from);
+
 		// If the output already exists we'll use it's last modified time
 		if (to.exists()) {
-			connection.setIfModifiedSince(to.lastModified());
+			request.header("If-Modified-Since", DownloadService.formatHttpDate(to.lastModified()));
 		}
 
 		//Try use the ETag if there's one for the file we're downloading
 		String etag = loadETag(to, logger);
 
 		if (etag != null) {
-			connection.setRequestProperty("If-None-Match", etag);
+			request.header("If-None-Match", etag);
 		}
 
-		// We want to download gzip compressed stuff
-		connection.setRequestProperty("Accept-Encoding", "gzip");
-
 		// Try make the connection, it will hang here if the connection is bad
-		connection.connect();
+		DownloadService.send(request.build(), response -> {
+			int code = response.statusCode();
 
-		int code = connection.getResponseCode();
+			if (!DownloadService.isSuccess(response) && code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+				//Didn't get what we expected
+				delete(to);
+				throw new IOException("HTTP " + code + " for " + from);
+			}
 
-		if ((code < 200 || code > 299) && code != HttpURLConnection.HTTP_NOT_MODIFIED) {
-			//Didn't get what we expected
-			delete(to);
-			throw new IOException(connection.getResponseMessage() + " for " + from);
-		}
+			long modifyTime = DownloadService.getLastModified(response);
 
-		long modifyTime = connection.getHeaderFieldDate("Last-Modified", -1);
+			if (to.exists() && (code == HttpURLConnection.HTTP_NOT_MODIFIED || modifyTime > 0 && to.lastModified() >= modifyTime)) {
+				if (!quiet) {
+					logger.info("'{}' Not Modified, skipping.", to);
+				}
 
-		if (to.exists() && (code == HttpURLConnection.HTTP_NOT_MODIFIED || modifyTime > 0 && to.lastModified() >= modifyTime)) {
-			if (!quiet) {
-				logger.info("'{}' Not Modified, skipping.", to);
+				return null; //What we've got is already fine
 			}
 
-			return; //What we've got is already fine
-		}
-
-		long contentLength = connection.getContentLengthLong();
+			long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
 
-		if (!quiet && contentLength >= 0) {
-			logger.info("'{}' Changed, downloading {}", to, toNiceSize(contentLength));
-		}
+			if (!quiet && contentLength >= 0) {
+				logger.info("'{}' Changed, downloading {}", to, toNiceSize(contentLength));
+			}
 
-		try { // Try download to the output
-			InputStream inputStream = connection.getInputStream();
+			// Download next to the output and move it into place once complete, so a failed download never leaves a broken file behind
+			File partFile = new File(to.getAbsoluteFile().getParentFile(), to.getName() + ".part");
 
-			if ("gzip".equals(connection.getContentEncoding())) {
-				inputStream = new GZIPInputStream(inputStream);
+			try { // Try download to the output
+				FileUtils.copyInputStreamToFile(DownloadService.getBody(response), partFile);
+				FileSystemUtil.replaceAtomically(partFile.toPath(), to.toPath());
+			} catch (IOException e) {
+				partFile.delete();
+				delete(to); // Probably isn't good if it fails to copy/save
+				throw e;
 			}
 
-			FileUtils.copyInputStreamToFile(inputStream, to);
-		} catch (IOException e) {
-			delete(to); // Probably isn't good if it fails to copy/save
-			throw e;
-		}
+			//Set the modify time to match the server's (if we know it)
+			if (modifyTime > 0) {
+				to.setLastModified(modifyTime);
+			}
 
-		//Set the modify time to match the server's (if we know it)
-		if (modifyTime > 0) {
-			to.setLastModified(modifyTime);
-		}
+			//Save the ETag (if we know it)
+			String eTag = response.headers().firstValue("ETag").orElse(null);
 
-		//Save the ETag (if we know it)
-		String eTag = connection.getHeaderField("ETag");
+			if (eTag != null) {
+				//Log if we get a weak ETag and we're not on quiet
+				if (!quiet && eTag.startsWith("W/")) {
+					logger.warn("Weak ETag found.");
+				}
 
-		if (eTag != null) {
-			//Log if we get a weak ETag and we're not on quiet
-			if (!quiet && eTag.startsWith("W/")) {
-				logger.warn("Weak ETag found.");
+				saveETag(to, eTag, logger);
 			}
 
-			saveETag(to, eTag, logger);
-		}
+			return null;
+		});
 	}
 
 	/**
@@ -29,12 +29,14 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -101,4 +103,15 @@ public final class FileSystemUtil {
 			return new Delegate(FileSystems.getFileSystem(jarUri), false);
 		}
 	}
+
+	/**
+	 * Moves the temp file over the target, atomically when the file system supports it.
+	 */
+	public static void replaceAtomically(Path tempFile, Path target) throws IOException {
+		try {
+			Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
 }
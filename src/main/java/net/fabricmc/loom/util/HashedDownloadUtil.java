@@ -25,30 +25,53 @@
 package net.fabricmc.loom.util;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.GZIPInputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import javax.annotation.Nullable;
 
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import com.google.common.io.Files;
-import org.apache.commons.io.FileUtils;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.gradle.api.logging.Logger;
 
 import net.fabricmc.loom.LoomGradlePlugin;
 
 public class HashedDownloadUtil {
+	private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
 	public static void downloadIfInvalid(URL from, File to, String expectedHash, Logger logger, boolean quiet) throws IOException {
-		downloadIfInvalid(from, to, expectedHash, logger, quiet, () -> { });
+		downloadIfInvalid(from, to, expectedHash, logger, quiet, null, () -> { });
+	}
+
+	public static void downloadIfInvalid(URL from, File to, String expectedHash, Logger logger, boolean quiet, @Nullable ArtifactStore store) throws IOException {
+		downloadIfInvalid(from, to, expectedHash, logger, quiet, store, () -> { });
 	}
 
 	public static void downloadIfInvalid(URL from, File to, String expectedHash, Logger logger, boolean quiet, Runnable startDownload) throws IOException {
-		if (LoomGradlePlugin.refreshDeps && !Boolean.getBoolean("loom.refresh")) {
+		downloadIfInvalid(from, to, expectedHash, logger, quiet, null, startDownload);
+	}
+
+	/**
+	 * @param store when not null, the file is linked from the store if it has already been downloaded elsewhere and
+	 *              added to the store once downloaded
+	 */
+	public static void downloadIfInvalid(URL from, File to, String expectedHash, Logger logger, boolean quiet, @Nullable ArtifactStore store, Runnable startDownload) throws IOException {
+		final boolean refresh = LoomGradlePlugin.refreshDeps && !Boolean.getBoolean("loom.refresh");
+
+		if (refresh) {
 			delete(to);
 		}
 
@@ -59,47 +82,129 @@ public class HashedDownloadUtil {
 			return;
 		}
 
+		// A refresh should not trust the stored copy either
+		if (store != null && !refresh && store.link(expectedHash, to.toPath())) {
+			logger.info("Linked '{}' from the artifact store", to);
+			saveSha1(to, expectedHash, logger);
+			return;
+		}
+
 		startDownload.run();
 
-		HttpURLConnection connection = (HttpURLConnection) from.openConnection();
-		connection.setRequestProperty("Accept-Encoding", "gzip");
-		connection.connect();
+		final Path partFile = getPartFile(to).toPath();
+		final boolean resumed = Files.exists(partFile);
+		String actualHash = download(from, to, partFile, logger, quiet, true);
 
-		int code = connection.getResponseCode();
+		if (resumed && !expectedHash.equals(actualHash)) {
+			// The old part file may have been for a different file, try again from the start
+			Files.deleteIfExists(partFile);
+			actualHash = download(from, to, partFile, logger, quiet, false);
+		}
 
-		if ((code < 200 || code > 299) && code != HttpURLConnection.HTTP_NOT_MODIFIED) {
-			//Didn't get what we expected
-			delete(to);
-			throw new IOException(connection.getResponseMessage() + " for " + from);
+		if (!expectedHash.equals(actualHash)) {
+			Files.deleteIfExists(partFile);
+
+			throw new IOException(String.format("Downloaded file from %s to %s and got unexpected hash of %s expected %s", from, to, actualHash, expectedHash));
 		}
 
-		long contentLength = connection.getContentLengthLong();
+		FileSystemUtil.replaceAtomically(partFile, to.toPath());
+		saveSha1(to, expectedHash, logger);
 
-		if (!quiet && contentLength >= 0) {
-			logger.info("'{}' Changed, downloading {}", to, DownloadUtil.toNiceSize(contentLength));
+		if (store != null) {
+			store.store(expectedHash, to.toPath());
+		}
+	}
+
+	/**
+	 * Downloads to the part file, continuing from where a previous attempt left off when the server supports range requests.
+	 *
+	 * <p>The part file is kept when the download fails, so that the next attempt can resume it.
+	 *
+	 * @return the sha1 of the complete part file
+	 */
+	private static String download(URL from, File to, Path partFile, Logger logger, boolean quiet, boolean allowResume) throws IOException {
+		final long existingLength = Files.exists(partFile) ? Files.size(partFile) : 0;
+		final boolean resume = allowResume && existingLength > 0;
+		final HttpRequest.Builder request = DownloadService.request(from);
+
+		if (resume) {
+			// A range of the gzipped body cannot be appended to the decompressed part file
+			request.setHeader("Accept-Encoding", "identity");
+			request.header("Range", "bytes=" + existingLength + "-");
 		}
 
-		try { // Try download to the output
-			InputStream inputStream = connection.getInputStream();
+		final String hash = DownloadService.send(request.build(), response -> {
+			int code = response.statusCode();
 
-			if ("gzip".equals(connection.getContentEncoding())) {
-				inputStream = new GZIPInputStream(inputStream);
+			if (resume && code == HTTP_RANGE_NOT_SATISFIABLE) {
+				// The part file is no good, start again
+				return null;
 			}
 
-			FileUtils.copyInputStreamToFile(inputStream, to);
-		} catch (IOException e) {
-			delete(to); // Probably isn't good if it fails to copy/save
-			throw e;
-		}
+			if (!DownloadService.isSuccess(response) && code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+				//Didn't get what we expected, keep the part file so a later attempt can still resume it
+				deleteDownloaded(to);
+				throw new IOException("HTTP " + code + " for " + from);
+			}
 
-		if (!Checksum.equals(to, expectedHash)) {
-			String actualHash = Files.asByteSource(to).hash(Hashing.sha1()).toString();
-			delete(to);
+			final boolean append = resume && code == HttpURLConnection.HTTP_PARTIAL && isExpectedRange(response, existingLength);
 
-			throw new IOException(String.format("Downloaded file from %s to %s and got unexpected hash of %s expected %s", from, to, actualHash, expectedHash));
+			if (code == HttpURLConnection.HTTP_PARTIAL && !append) {
+				// Not the range that was asked for
+				return null;
+			}
+
+			long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+
+			if (!quiet && contentLength >= 0) {
+				if (append) {
+					logger.info("'{}' Changed, resuming download of {} after {}", to, DownloadUtil.toNiceSize(contentLength), DownloadUtil.toNiceSize(existingLength));
+				} else {
+					logger.info("'{}' Changed, downloading {}", to, DownloadUtil.toNiceSize(contentLength));
+				}
+			}
+
+			final Hasher hasher = Hashing.sha1().newHasher();
+
+			if (append) {
+				// Hash what has already been downloaded
+				try (InputStream inputStream = Files.newInputStream(partFile)) {
+					ByteStreams.copy(inputStream, Funnels.asOutputStream(hasher));
+				}
+			}
+
+			Files.createDirectories(partFile.getParent());
+
+			// Hash the data as it is written to the part file, rather than reading the file back afterwards
+			try (InputStream inputStream = DownloadService.getBody(response);
+					OutputStream outputStream = append ? Files.newOutputStream(partFile, StandardOpenOption.APPEND) : Files.newOutputStream(partFile)) {
+				ByteStreams.copy(inputStream, new TeeOutputStream(outputStream, Funnels.asOutputStream(hasher)));
+			}
+
+			return hasher.hash().toString();
+		});
+
+		if (hash == null) {
+			if (!resume) {
+				throw new IOException("Unexpected partial response for " + from);
+			}
+
+			Files.deleteIfExists(partFile);
+			return download(from, to, partFile, logger, quiet, false);
 		}
 
-		saveSha1(to, expectedHash, logger);
+		return hash;
+	}
+
+	private static boolean isExpectedRange(HttpResponse<?> response, long start) {
+		// Content-Range: bytes <start>-<end>/<length>
+		return response.headers().firstValue("Content-Range")
+				.filter(range -> range.startsWith("bytes " + start + "-"))
+				.isPresent();
+	}
+
+	private static File getPartFile(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".part");
 	}
 
 	private static File getSha1File(File file) {
@@ -108,16 +213,17 @@ public class HashedDownloadUtil {
 
 	@Nullable
 	private static String getSha1(File to, Logger logger) {
+		File sha1File = getSha1File(to);
+
 		if (!to.exists()) {
-			delete(to);
+			// Keep any part file so that the download can be resumed
+			sha1File.delete();
 			return null;
 		}
 
-		File sha1File = getSha1File(to);
-
 		try {
-			return Files.asCharSource(sha1File, StandardCharsets.UTF_8).read();
-		} catch (FileNotFoundException ignored) {
+			return Files.readString(sha1File.toPath(), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException ignored) {
 			// Quicker to catch this than do an exists check before.
 			return null;
 		} catch (IOException e) {
@@ -134,13 +240,23 @@ public class HashedDownloadUtil {
 				sha1File.createNewFile();
 			}
 
-			Files.asCharSink(sha1File, StandardCharsets.UTF_8).write(sha1);
+			Files.writeString(sha1File.toPath(), sha1, StandardCharsets.UTF_8);
 		} catch (IOException e) {
 			logger.warn("Error saving sha1 file '{}'.", sha1File, e);
 		}
 	}
 
 	public static void delete(File file) {
+		deleteDownloaded(file);
+
+		File partFile = getPartFile(file);
+
+		if (partFile.exists()) {
+			partFile.delete();
+		}
+	}
+
+	private static void deleteDownloaded(File file) {
 		if (file.exists()) {
 			file.delete();
 		}
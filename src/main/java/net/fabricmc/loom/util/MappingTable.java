@@ -0,0 +1,195 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.fabricmc.mappingio.tree.MappingTree;
+import net.fabricmc.tinyremapper.IMappingProvider;
+
+/**
+ * The mappings between two namespaces of a mapping tree, flattened into parallel arrays so that they can be passed to
+ * any number of tiny remappers without walking the tree again.
+ *
+ * <p>The members are created once when the table is built, loading the table into a remapper does not allocate.
+ * Equal names and descriptors share a single string.
+ */
+public final class MappingTable implements IMappingProvider {
+	private final String[] classNames;
+	private final String[] classDstNames;
+
+	private final Member[] fields;
+	private final String[] fieldDstNames;
+
+	private final Member[] methods;
+	private final String[] methodDstNames;
+
+	// Index into methods
+	private final int[] argMethods;
+	private final int[] argLvIndices;
+	private final String[] argDstNames;
+
+	// Index into methods
+	private final int[] varMethods;
+	private final int[] varLvIndices;
+	private final int[] varStartOpIndices;
+	private final int[] varLvtRowIndices;
+	private final String[] varDstNames;
+
+	private MappingTable(int classCount, int fieldCount, int methodCount, int argCount, int varCount) {
+		classNames = new String[classCount];
+		classDstNames = new String[classCount];
+		fields = new Member[fieldCount];
+		fieldDstNames = new String[fieldCount];
+		methods = new Member[methodCount];
+		methodDstNames = new String[methodCount];
+		argMethods = new int[argCount];
+		argLvIndices = new int[argCount];
+		argDstNames = new String[argCount];
+		varMethods = new int[varCount];
+		varLvIndices = new int[varCount];
+		varStartOpIndices = new int[varCount];
+		varLvtRowIndices = new int[varCount];
+		varDstNames = new String[varCount];
+	}
+
+	public static MappingTable create(MappingTree mappings, String from, String to, boolean remapLocalVariables) {
+		final int fromId = mappings.getNamespaceId(from);
+		final int toId = mappings.getNamespaceId(to);
+
+		int fieldCount = 0;
+		int methodCount = 0;
+		int argCount = 0;
+		int varCount = 0;
+
+		for (MappingTree.ClassMapping classDef : mappings.getClasses()) {
+			fieldCount += classDef.getFields().size();
+			methodCount += classDef.getMethods().size();
+
+			if (remapLocalVariables) {
+				for (MappingTree.MethodMapping method : classDef.getMethods()) {
+					for (MappingTree.MethodArgMapping arg : method.getArgs()) {
+						if (arg.getName(toId) != null) {
+							argCount++;
+						}
+					}
+
+					varCount += method.getVars().size();
+				}
+			}
+		}
+
+		final MappingTable table = new MappingTable(mappings.getClasses().size(), fieldCount, methodCount, argCount, varCount);
+		final Map<String, String> strings = new HashMap<>();
+
+		int classIndex = 0;
+		int fieldIndex = 0;
+		int methodIndex = 0;
+		int argIndex = 0;
+		int varIndex = 0;
+
+		for (MappingTree.ClassMapping classDef : mappings.getClasses()) {
+			final String className = intern(strings, classDef.getName(fromId));
+			String dstName = classDef.getName(toId);
+
+			if (dstName == null) {
+				// Unsure if this is correct, should be better than crashing tho.
+				dstName = className;
+			}
+
+			table.classNames[classIndex] = className;
+			table.classDstNames[classIndex++] = intern(strings, dstName);
+
+			for (MappingTree.FieldMapping field : classDef.getFields()) {
+				table.fields[fieldIndex] = new Member(className, intern(strings, field.getName(fromId)), intern(strings, field.getDesc(fromId)));
+				table.fieldDstNames[fieldIndex++] = intern(strings, field.getName(toId));
+			}
+
+			for (MappingTree.MethodMapping method : classDef.getMethods()) {
+				table.methods[methodIndex] = new Member(className, intern(strings, method.getName(fromId)), intern(strings, method.getDesc(fromId)));
+				table.methodDstNames[methodIndex] = intern(strings, method.getName(toId));
+
+				if (remapLocalVariables) {
+					for (MappingTree.MethodArgMapping arg : method.getArgs()) {
+						final String name = arg.getName(toId);
+
+						if (name == null) {
+							continue;
+						}
+
+						table.argMethods[argIndex] = methodIndex;
+						table.argLvIndices[argIndex] = arg.getLvIndex();
+						table.argDstNames[argIndex++] = intern(strings, name);
+					}
+
+					for (MappingTree.MethodVarMapping localVariable : method.getVars()) {
+						table.varMethods[varIndex] = methodIndex;
+						table.varLvIndices[varIndex] = localVariable.getLvIndex();
+						table.varStartOpIndices[varIndex] = localVariable.getStartOpIdx();
+						table.varLvtRowIndices[varIndex] = localVariable.getLvtRowIndex();
+						table.varDstNames[varIndex++] = intern(strings, localVariable.getName(toId));
+					}
+				}
+
+				methodIndex++;
+			}
+		}
+
+		return table;
+	}
+
+	private static String intern(Map<String, String> strings, String string) {
+		if (string == null) {
+			return null;
+		}
+
+		final String existing = strings.putIfAbsent(string, string);
+		return existing != null ? existing : string;
+	}
+
+	@Override
+	public void load(MappingAcceptor acceptor) {
+		for (int i = 0; i < classNames.length; i++) {
+			acceptor.acceptClass(classNames[i], classDstNames[i]);
+		}
+
+		for (int i = 0; i < fields.length; i++) {
+			acceptor.acceptField(fields[i], fieldDstNames[i]);
+		}
+
+		for (int i = 0; i < methods.length; i++) {
+			acceptor.acceptMethod(methods[i], methodDstNames[i]);
+		}
+
+		for (int i = 0; i < argMethods.length; i++) {
+			acceptor.acceptMethodArg(methods[argMethods[i]], argLvIndices[i], argDstNames[i]);
+		}
+
+		for (int i = 0; i < varMethods.length; i++) {
+			acceptor.acceptMethodVar(methods[varMethods[i]], varLvIndices[i], varStartOpIndices[i], varLvtRowIndices[i], varDstNames[i]);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.google.common.base.Suppliers;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.mappingio.tree.MappingTree;
+
+/**
+ * Maps names between two namespaces using only a mapping tree, without reading any classes.
+ *
+ * <p>Members are looked up on the given owner first. Only when the name is mapped on some other class, and so may be
+ * inherited, is the lookup passed on to the hierarchy aware fallback. Names that are not mapped anywhere are returned as is.
+ */
+public final class MappingTreeRemapper extends Remapper {
+	private final Map<String, String> classes;
+	private final Map<String, String> fields;
+	private final Map<String, String> methods;
+	private final Set<String> mappedFieldNames;
+	private final Set<String> mappedMethodNames;
+	@Nullable
+	private final Supplier<Remapper> hierarchyFallback;
+
+	private MappingTreeRemapper(Map<String, String> classes, Map<String, String> fields, Map<String, String> methods, Set<String> mappedFieldNames, Set<String> mappedMethodNames, @Nullable Supplier<Remapper> hierarchyFallback) {
+		this.classes = classes;
+		this.fields = fields;
+		this.methods = methods;
+		this.mappedFieldNames = mappedFieldNames;
+		this.mappedMethodNames = mappedMethodNames;
+		this.hierarchyFallback = hierarchyFallback != null ? Suppliers.memoize(hierarchyFallback::get) : null;
+	}
+
+	/**
+	 * @param hierarchyFallback creates the remapper used for members that may be inherited, only called when it is first
+	 *                          needed. When null, members are only mapped on the class that declares them.
+	 */
+	public static MappingTreeRemapper create(MappingTree mappingTree, String from, String to, @Nullable Supplier<Remapper> hierarchyFallback) {
+		final int fromId = mappingTree.getNamespaceId(from);
+		final int toId = mappingTree.getNamespaceId(to);
+
+		final Map<String, String> classes = new HashMap<>(mappingTree.getClasses().size() * 2);
+		final Map<String, String> fields = new HashMap<>();
+		final Map<String, String> methods = new HashMap<>();
+		final Set<String> mappedFieldNames = new HashSet<>();
+		final Set<String> mappedMethodNames = new HashSet<>();
+
+		for (MappingTree.ClassMapping classDef : mappingTree.getClasses()) {
+			final String className = classDef.getName(fromId);
+
+			if (className == null) {
+				continue;
+			}
+
+			final String dstName = classDef.getName(toId);
+
+			if (dstName != null && !dstName.equals(className)) {
+				classes.put(className, dstName);
+			}
+
+			for (MappingTree.FieldMapping field : classDef.getFields()) {
+				final String name = field.getName(fromId);
+				final String dst = field.getName(toId);
+
+				if (name != null && dst != null && !dst.equals(name)) {
+					fields.put(fieldKey(className, name), dst);
+					mappedFieldNames.add(name);
+				}
+			}
+
+			for (MappingTree.MethodMapping method : classDef.getMethods()) {
+				final String name = method.getName(fromId);
+				final String desc = method.getDesc(fromId);
+				final String dst = method.getName(toId);
+
+				if (name != null && desc != null && dst != null && !dst.equals(name)) {
+					methods.put(methodKey(className, name, desc), dst);
+					mappedMethodNames.add(name);
+				}
+			}
+		}
+
+		return new MappingTreeRemapper(classes, fields, methods, mappedFieldNames, mappedMethodNames, hierarchyFallback);
+	}
+
+	@Override
+	public String map(String internalName) {
+		final String mapped = classes.get(internalName);
+
+		if (mapped != null) {
+			return mapped;
+		}
+
+		final int innerClassStart = internalName.lastIndexOf('$');
+
+		if (innerClassStart > 0) {
+			// Inner classes without their own mapping keep their name inside the mapped outer class
+			final String outer = map(internalName.substring(0, innerClassStart));
+
+			if (!outer.equals(internalName.substring(0, innerClassStart))) {
+				return outer + internalName.substring(innerClassStart);
+			}
+		}
+
+		return internalName;
+	}
+
+	@Override
+	public String mapFieldName(String owner, String name, String descriptor) {
+		final String mapped = fields.get(fieldKey(owner, name));
+
+		if (mapped != null) {
+			return mapped;
+		}
+
+		if (hierarchyFallback != null && mappedFieldNames.contains(name)) {
+			return hierarchyFallback.get().mapFieldName(owner, name, descriptor);
+		}
+
+		return name;
+	}
+
+	@Override
+	public String mapMethodName(String owner, String name, String descriptor) {
+		final String mapped = methods.get(methodKey(owner, name, descriptor));
+
+		if (mapped != null) {
+			return mapped;
+		}
+
+		if (hierarchyFallback != null && mappedMethodNames.contains(name)) {
+			return hierarchyFallback.get().mapMethodName(owner, name, descriptor);
+		}
+
+		return name;
+	}
+
+	private static String fieldKey(String owner, String name) {
+		return owner + '/' + name;
+	}
+
+	private static String methodKey(String owner, String name, String descriptor) {
+		return owner + '/' + name + descriptor;
+	}
+}
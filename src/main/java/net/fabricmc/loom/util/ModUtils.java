@@ -26,11 +26,19 @@ package net.fabricmc.loom.util;
 
 import java.io.File;
 
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+
 public final class ModUtils {
 	private ModUtils() {
 	}
 
 	public static boolean isMod(File input) {
-		return ZipUtils.contains(input.toPath(), "fabric.mod.json");
+		return isMod(input, null);
+	}
+
+	public static boolean isMod(File input, @Nullable CentralDirectoryCache cache) {
+		return ZipUtils.contains(input.toPath(), "fabric.mod.json", cache);
 	}
 }
@@ -27,6 +27,7 @@ package net.fabricmc.loom.util;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
@@ -36,6 +37,7 @@ import org.gradle.api.Project;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.task.service.MappingsService;
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -65,8 +67,8 @@ public final class TinyRemapperHelper {
 	}
 
 	public static TinyRemapper getTinyRemapper(Project project, String fromM, String toM, boolean fixRecords, Consumer<TinyRemapper.Builder> builderConsumer) throws IOException {
-		LoomGradleExtension extension = LoomGradleExtension.get(project);
-		MemoryMappingTree mappingTree = extension.getMappingsProvider().getMappings();
+		MappingsService mappingsService = MappingsService.createDefault(project, fromM, toM, true);
+		MemoryMappingTree mappingTree = mappingsService.getMemoryMappingTree();
 
 		if (fixRecords && !mappingTree.getSrcNamespace().equals(fromM)) {
 			throw new IllegalStateException("Mappings src namespace must match remap src namespace");
@@ -75,7 +77,7 @@ public final class TinyRemapperHelper {
 		int intermediaryNsId = mappingTree.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
 
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
-				.withMappings(create(mappingTree, fromM, toM, true))
+				.withMappings(mappingsService.getMappingsProvider())
 				.withMappings(out -> JSR_TO_JETBRAINS.forEach(out::acceptClass))
 				.renameInvalidLocals(true)
 				.rebuildSourceFilenames(true)
@@ -98,8 +100,15 @@ public final class TinyRemapperHelper {
 				.stream().map(File::toPath).toArray(Path[]::new);
 	}
 
-	private static IMappingProvider.Member memberOf(String className, String memberName, String descriptor) {
-		return new IMappingProvider.Member(className, memberName, descriptor);
+	/**
+	 * Returns copies of the given classpath entries that only contain what is needed to remap against them, these are
+	 * created once per jar and are much faster to read than the full jars.
+	 *
+	 * @see ClasspathAbiCache
+	 */
+	public static Path[] getClasspathAbi(Project project, Path... paths) throws IOException {
+		final ClasspathAbiCache cache = ClasspathAbiCache.create(LoomGradleExtension.get(project).getFiles().getUserCache().toPath());
+		return cache.getAll(Arrays.asList(paths)).stream().map(ClasspathAbiCache.Abi::path).toArray(Path[]::new);
 	}
 
 	public static IMappingProvider create(Path mappings, String from, String to, boolean remapLocalVariables) throws IOException {
@@ -108,49 +117,11 @@ public final class TinyRemapperHelper {
 		return create(mappingTree, from, to, remapLocalVariables);
 	}
 
+	/**
+	 * Flattens the mappings into a {@link MappingTable}, prefer {@link MappingsService#getMappingsProvider()} to share
+	 * the table with every other remapper that uses the same mappings.
+	 */
 	public static IMappingProvider create(MappingTree mappings, String from, String to, boolean remapLocalVariables) {
-		return (acceptor) -> {
-			final int fromId = mappings.getNamespaceId(from);
-			final int toId = mappings.getNamespaceId(to);
-
-			for (MappingTree.ClassMapping classDef : mappings.getClasses()) {
-				String className = classDef.getName(fromId);
-				String dstName = classDef.getName(toId);
-
-				if (dstName == null) {
-					// Unsure if this is correct, should be better than crashing tho.
-					dstName = className;
-				}
-
-				acceptor.acceptClass(className, dstName);
-
-				for (MappingTree.FieldMapping field : classDef.getFields()) {
-					acceptor.acceptField(memberOf(className, field.getName(fromId), field.getDesc(fromId)), field.getName(toId));
-				}
-
-				for (MappingTree.MethodMapping method : classDef.getMethods()) {
-					IMappingProvider.Member methodIdentifier = memberOf(className, method.getName(fromId), method.getDesc(fromId));
-					acceptor.acceptMethod(methodIdentifier, method.getName(toId));
-
-					if (remapLocalVariables) {
-						for (MappingTree.MethodArgMapping parameter : method.getArgs()) {
-							String name = parameter.getName(toId);
-
-							if (name == null) {
-								continue;
-							}
-
-							acceptor.acceptMethodArg(methodIdentifier, parameter.getLvIndex(), name);
-						}
-
-						for (MappingTree.MethodVarMapping localVariable : method.getVars()) {
-							acceptor.acceptMethodVar(methodIdentifier, localVariable.getLvIndex(),
-									localVariable.getStartOpIdx(), localVariable.getLvtRowIndex(),
-									localVariable.getName(toId));
-						}
-					}
-				}
-			}
-		};
+		return MappingTable.create(mappings, from, to, remapLocalVariables);
 	}
 }
@@ -24,70 +24,82 @@
 
 package net.fabricmc.loom.util;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import net.fabricmc.loom.util.zip.RawZipEntry;
+import net.fabricmc.loom.util.zip.RawZipFile;
+import net.fabricmc.loom.util.zip.RawZipWriter;
+
 public class ZipReprocessorUtil {
 	/**
 	 * See {@link org.gradle.api.internal.file.archive.ZipCopyAction} about this.
 	 */
-	private static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+	public static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
 
 	private ZipReprocessorUtil() { }
 
+	/**
+	 * Writes an entry with a constant time, the entries are compressed again rather than copied so that the output only
+	 * depends on the names and contents of the entries.
+	 */
+	public static void putReproducibleEntry(ZipOutputStream zipOutputStream, String name, byte[] data) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
+		entry.setLastModifiedTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
+		entry.setLastAccessTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
+
+		zipOutputStream.putNextEntry(entry);
+		zipOutputStream.write(data);
+		zipOutputStream.closeEntry();
+	}
+
 	public static void reprocessZip(File file, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
 		if (!reproducibleFileOrder && preserveFileTimestamps) {
 			return;
 		}
 
-		try (ZipFile zipFile = new ZipFile(file)) {
-			ZipEntry[] entries;
+		// Stream to a sibling file rather than buffering the whole zip in memory, the sources jars can be very large.
+		final Path zip = file.toPath();
+		final Path tempFile = Files.createTempFile(zip.toAbsolutePath().getParent(), zip.getFileName().toString(), ".tmp");
 
-			if (reproducibleFileOrder) {
-				entries = zipFile.stream().sorted(Comparator.comparing(ZipEntry::getName)).toArray(ZipEntry[]::new);
-			} else {
-				entries = zipFile.stream().toArray(ZipEntry[]::new);
-			}
+		try {
+			try (RawZipFile zipFile = RawZipFile.open(zip)) {
+				List<RawZipEntry> entries = zipFile.getEntries();
 
-			ByteArrayOutputStream outZip = new ByteArrayOutputStream(zipFile.size());
-
-			try (ZipOutputStream zipOutputStream = new ZipOutputStream(outZip)) {
-				for (ZipEntry entry : entries) {
-					ZipEntry newEntry = entry;
+				if (reproducibleFileOrder) {
+					entries = entries.stream().sorted(Comparator.comparing(RawZipEntry::name)).toList();
+				}
 
-					if (!preserveFileTimestamps) {
-						newEntry = new ZipEntry(entry.getName());
-						newEntry.setTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
-						newEntry.setLastModifiedTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
-						newEntry.setLastAccessTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
+				if (preserveFileTimestamps) {
+					// Only the order changes, the entries are transferred as is.
+					try (RawZipWriter zipWriter = RawZipWriter.create(tempFile)) {
+						for (RawZipEntry entry : entries) {
+							zipWriter.copyRaw(zipFile, entry);
+						}
 					}
-
-					zipOutputStream.putNextEntry(newEntry);
-					InputStream inputStream = zipFile.getInputStream(entry);
-					byte[] buf = new byte[1024];
-					int length;
-
-					while ((length = inputStream.read(buf)) > 0) {
-						zipOutputStream.write(buf, 0, length);
+				} else {
+					try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+						for (RawZipEntry entry : entries) {
+							putReproducibleEntry(zipOutputStream, entry.name(), zipFile.readAllBytes(entry));
+						}
 					}
-
-					zipOutputStream.closeEntry();
 				}
 			}
 
-			try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-				outZip.writeTo(fileOutputStream);
-			}
+			FileSystemUtil.replaceAtomically(tempFile, zip);
+		} finally {
+			Files.deleteIfExists(tempFile);
 		}
 	}
 }
@@ -27,6 +27,7 @@ package net.fabricmc.loom.util;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
@@ -34,11 +35,11 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -46,6 +47,10 @@ import java.util.stream.Stream;
 import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.zip.CentralDirectoryCache;
+import net.fabricmc.loom.util.zip.RawZipEntry;
+import net.fabricmc.loom.util.zip.RawZipFile;
+import net.fabricmc.loom.util.zip.RawZipWriter;
 
 public class ZipUtils {
 	public static boolean isZip(Path zip) throws IOException {
@@ -65,45 +70,68 @@ public class ZipUtils {
 	}
 
 	public static boolean contains(Path zip, String path) {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
-			Path fsPath = fs.get().getPath(path);
+		return contains(zip, path, null);
+	}
 
-			return Files.exists(fsPath);
+	public static boolean contains(Path zip, String path, @Nullable CentralDirectoryCache cache) {
+		try (RawZipFile zipFile = RawZipFile.open(zip, cache)) {
+			return zipFile.contains(toEntryName(path));
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to check file from zip", e);
 		}
 	}
 
 	public static void unpackAll(Path zip, Path output) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false);
-				Stream<Path> walk = Files.walk(fs.get().getPath("/"))) {
-			Iterator<Path> iterator = walk.iterator();
+		final Path outputDir = output.toAbsolutePath().normalize();
+
+		try (RawZipFile zipFile = RawZipFile.open(zip)) {
+			for (RawZipEntry entry : zipFile.getEntries()) {
+				if (entry.isDirectory()) continue;
+				Path dstPath = outputDir.resolve(entry.name()).normalize();
+
+				if (!dstPath.startsWith(outputDir)) {
+					throw new IOException("Zip entry %s in %s is outside of the target directory".formatted(entry.name(), zip));
+				}
 
-			while (iterator.hasNext()) {
-				Path fsPath = iterator.next();
-				if (!Files.isRegularFile(fsPath)) continue;
-				Path dstPath = output.resolve(fs.get().getPath("/").relativize(fsPath).toString());
 				Path dstPathParent = dstPath.getParent();
 				if (dstPathParent != null) Files.createDirectories(dstPathParent);
-				Files.copy(fsPath, dstPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					Files.copy(inputStream, dstPath, StandardCopyOption.REPLACE_EXISTING);
+				}
+
+				Files.setLastModifiedTime(dstPath, entry.lastModifiedTime());
 			}
 		}
 	}
 
 	public static byte @Nullable [] unpackNullable(Path zip, String path) throws IOException {
+		return unpackNullable(zip, path, null);
+	}
+
+	public static byte @Nullable [] unpackNullable(Path zip, String path, @Nullable CentralDirectoryCache cache) throws IOException {
 		try {
-			return unpack(zip, path);
+			return unpack(zip, path, cache);
 		} catch (NoSuchFileException e) {
 			return null;
 		}
 	}
 
 	public static byte[] unpack(Path zip, String path) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
-			return fs.readAllBytes(path);
+		return unpack(zip, path, null);
+	}
+
+	public static byte[] unpack(Path zip, String path, @Nullable CentralDirectoryCache cache) throws IOException {
+		try (RawZipFile zipFile = RawZipFile.open(zip, cache)) {
+			return zipFile.readAllBytes(toEntryName(path));
 		}
 	}
 
+	private static String toEntryName(String path) {
+		// Entry names are relative to the root of the zip
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
 	public static void pack(Path from, Path zip) throws IOException {
 		Files.deleteIfExists(zip);
 
@@ -111,22 +139,21 @@ public class ZipUtils {
 
 		int count = 0;
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true);
+		try (RawZipWriter writer = RawZipWriter.create(zip);
 				Stream<Path> walk = Files.walk(from)) {
 			Iterator<Path> iterator = walk.iterator();
 
 			while (iterator.hasNext()) {
 				Path fromPath = iterator.next();
 				if (!Files.isRegularFile(fromPath)) continue;
-				Path fsPath = fs.get().getPath(from.relativize(fromPath).toString());
-				Path fsPathParent = fsPath.getParent();
-				if (fsPathParent != null) Files.createDirectories(fsPathParent);
-				Files.copy(fromPath, fsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+				String name = from.relativize(fromPath).toString().replace(from.getFileSystem().getSeparator(), "/");
+				writer.putEntry(name, Files.readAllBytes(fromPath), Files.getLastModifiedTime(fromPath).toMillis());
 				count++;
 			}
 		}
 
 		if (count == 0) {
+			Files.deleteIfExists(zip);
 			throw new IOException("Noting packed into %s from %s".formatted(zip, from));
 		}
 	}
@@ -140,25 +167,14 @@ public class ZipUtils {
 	}
 
 	public static void add(Path zip, Iterable<Pair<String, byte[]>> files) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
-			for (Pair<String, byte[]> pair : files) {
-				Path fsPath = fs.get().getPath(pair.left());
-				Path fsPathParent = fsPath.getParent();
-				if (fsPathParent != null) Files.createDirectories(fsPathParent);
-				Files.write(fsPath, pair.right(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-			}
-		}
+		rewrite(zip, Collections.emptyMap(), files);
 	}
 
 	public static void replace(Path zip, String path, byte[] bytes) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
-			Path fsPath = fs.get().getPath(path);
+		int count = rewrite(zip, Map.of(path, original -> bytes), Collections.emptyList());
 
-			if (Files.exists(fsPath)) {
-				Files.write(fsPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-			} else {
-				throw new NoSuchFileException(fsPath.toString());
-			}
+		if (count == 0) {
+			throw new NoSuchFileException(path);
 		}
 	}
 
@@ -183,8 +199,25 @@ public class ZipUtils {
 	}
 
 	public static <T> int transformJson(Class<T> typeOfT, Path zip, Map<String, UnsafeUnaryOperator<T>> transforms) throws IOException {
-		return transformMapped(zip, transforms, bytes -> LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), typeOfT),
-				s -> LoomGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8));
+		Map<String, UnsafeUnaryOperator<byte[]>> newTransforms = new HashMap<>();
+
+		for (Map.Entry<String, UnsafeUnaryOperator<T>> entry : transforms.entrySet()) {
+			if (entry.getValue() != null) {
+				newTransforms.put(entry.getKey(), jsonTransformer(typeOfT, entry.getValue()));
+			}
+		}
+
+		return transform(zip, newTransforms);
+	}
+
+	/**
+	 * Wraps a json transform into one that works on the raw bytes of a zip entry.
+	 */
+	public static <T> UnsafeUnaryOperator<byte[]> jsonTransformer(Class<T> typeOfT, UnsafeUnaryOperator<T> transformer) {
+		return bytes -> {
+			T json = LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), typeOfT);
+			return LoomGradlePlugin.GSON.toJson(transformer.apply(json), typeOfT).getBytes(StandardCharsets.UTF_8);
+		};
 	}
 
 	public static int transform(Path zip, Collection<Pair<String, UnsafeUnaryOperator<byte[]>>> transforms) throws IOException {
@@ -210,20 +243,95 @@ public class ZipUtils {
 	}
 
 	public static int transform(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
-		int replacedCount = 0;
+		return rewrite(zip, transforms, Collections.emptyList());
+	}
+
+	/**
+	 * Rewrites the zip in a single pass, transforming existing entries and adding new ones.
+	 *
+	 * <p>Entries that are neither transformed nor replaced by an added entry are copied as is, without being decompressed.
+	 * The zip is created if it does not exist, and is left untouched when there is nothing to change.
+	 *
+	 * @param zip the zip to rewrite
+	 * @param transforms the transforms to apply, keyed by entry path. Entries that do not exist are ignored.
+	 * @param additions the entries to add, replacing any existing entry with the same path
+	 * @return the number of existing entries that were transformed
+	 */
+	public static int rewrite(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms, Iterable<Pair<String, byte[]>> additions) throws IOException {
+		final Map<String, UnsafeUnaryOperator<byte[]>> transformers = new HashMap<>();
+		final Map<String, byte[]> added = new LinkedHashMap<>();
+
+		for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
+			if (entry.getValue() != null) {
+				transformers.put(toEntryName(entry.getKey()), entry.getValue());
+			}
+		}
+
+		for (Pair<String, byte[]> pair : additions) {
+			added.put(toEntryName(pair.left()), pair.right());
+		}
+
+		if (added.isEmpty() && (transformers.isEmpty() || !containsAny(zip, transformers.keySet()))) {
+			return 0;
+		}
+
+		final Path tempFile = Files.createTempFile(zip.toAbsolutePath().getParent(), zip.getFileName().toString(), ".tmp");
+		int transformed = 0;
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
-			for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
-				Path fsPath = fs.get().getPath(entry.getKey());
+		try {
+			try (RawZipWriter writer = RawZipWriter.create(tempFile)) {
+				if (Files.exists(zip)) {
+					try (RawZipFile zipFile = RawZipFile.open(zip)) {
+						for (RawZipEntry entry : zipFile.getEntries()) {
+							final String name = entry.name();
+
+							if (writer.hasEntry(name)) {
+								// Duplicate entry, only the first one is visible to most readers.
+								continue;
+							}
+
+							final byte[] replacement = added.remove(name);
+							final UnsafeUnaryOperator<byte[]> transformer = transformers.get(name);
+
+							if (replacement != null) {
+								writer.putEntry(name, replacement);
+							} else if (transformer != null && !entry.isDirectory()) {
+								writer.putEntry(name, transformer.apply(zipFile.readAllBytes(entry)));
+								transformed++;
+							} else {
+								writer.copyRaw(zipFile, entry);
+							}
+						}
+					}
+				}
+
+				for (Map.Entry<String, byte[]> entry : added.entrySet()) {
+					writer.putEntry(entry.getKey(), entry.getValue());
+				}
+			}
+
+			FileSystemUtil.replaceAtomically(tempFile, zip);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		return transformed;
+	}
+
+	private static boolean containsAny(Path zip, Collection<String> paths) throws IOException {
+		if (Files.notExists(zip)) {
+			return false;
+		}
 
-				if (Files.exists(fsPath) && entry.getValue() != null) {
-					Files.write(fsPath, entry.getValue().apply(Files.readAllBytes(fsPath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-					replacedCount++;
+		try (RawZipFile zipFile = RawZipFile.open(zip)) {
+			for (String path : paths) {
+				if (zipFile.contains(path)) {
+					return true;
 				}
 			}
 		}
 
-		return replacedCount;
+		return false;
 	}
 
 	@FunctionalInterface
@@ -0,0 +1,102 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.zip;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.util.service.SharedService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+
+/**
+ * Keeps the parsed central directories of recently opened zips for the duration of a build, so that looking up a single
+ * entry in a jar that has already been opened does not read and parse the whole central directory again.
+ *
+ * <p>A cached directory is only used while the size, last modified time and file key (where supported) of the file are
+ * unchanged, files that are replaced by moving a new file over them always get a new file key.
+ */
+public final class CentralDirectoryCache implements SharedService {
+	private static final int MAX_SIZE = 512;
+
+	private final Map<Path, Directory> cache = new LinkedHashMap<>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Directory> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private CentralDirectoryCache() {
+	}
+
+	public static CentralDirectoryCache getInstance(SharedServiceManager sharedServiceManager) {
+		return sharedServiceManager.getOrCreateService("CentralDirectoryCache", CentralDirectoryCache::new);
+	}
+
+	@Nullable
+	Directory get(Path path, BasicFileAttributes attributes) {
+		final Directory directory;
+
+		synchronized (cache) {
+			directory = cache.get(path);
+		}
+
+		if (directory == null || !directory.matches(attributes)) {
+			return null;
+		}
+
+		return directory;
+	}
+
+	void put(Path path, Directory directory) {
+		synchronized (cache) {
+			cache.put(path, directory);
+		}
+	}
+
+	static Directory create(BasicFileAttributes attributes, List<RawZipEntry> entries, Map<String, RawZipEntry> entriesByName) {
+		return new Directory(attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey(), entries, entriesByName);
+	}
+
+	@Override
+	public void close() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	record Directory(long size, long lastModified, @Nullable Object fileKey, List<RawZipEntry> entries, Map<String, RawZipEntry> entriesByName) {
+		boolean matches(BasicFileAttributes attributes) {
+			return size == attributes.size()
+					&& lastModified == attributes.lastModifiedTime().toMillis()
+					&& Objects.equals(fileKey, attributes.fileKey());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.zip;
+
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+
+/**
+ * An entry as described by the central directory of a zip file, see {@link RawZipFile}.
+ *
+ * @param name the entry name
+ * @param versionMadeBy the version made by field, the upper byte is the host system that the external attributes are for
+ * @param flags the general purpose bit flags
+ * @param method the compression method, {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+ * @param dosTime the last modified time in MS-DOS format
+ * @param crc the CRC-32 of the uncompressed data
+ * @param compressedSize the size of the data as stored in the zip
+ * @param size the size of the uncompressed data
+ * @param localHeaderOffset the offset of the local file header from the start of the file
+ * @param externalAttributes the external file attributes
+ * @param extra the extra field data from the central directory
+ */
+public record RawZipEntry(String name, int versionMadeBy, int flags, int method, int dosTime, long crc, long compressedSize, long size, long localHeaderOffset, int externalAttributes, byte[] extra) {
+	public boolean isDirectory() {
+		return name.endsWith("/");
+	}
+
+	public FileTime lastModifiedTime() {
+		return FileTime.fromMillis(ZipFormat.dosToJavaTime(dosTime));
+	}
+}
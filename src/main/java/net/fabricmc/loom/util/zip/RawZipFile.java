@@ -0,0 +1,450 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A minimal zip reader that only parses the central directory, and gives access to both the compressed and uncompressed entry data.
+ *
+ * <p>Unlike {@link java.util.zip.ZipFile} the compressed bytes of an entry can be copied straight into another zip with
+ * {@link RawZipWriter#copyRaw(RawZipFile, RawZipEntry)}, without inflating and deflating them again.
+ *
+ * <p>Reads are positional, so a single instance can be read from multiple threads.
+ */
+public final class RawZipFile implements Closeable {
+	private final Path path;
+	private final FileChannel channel;
+	private final List<RawZipEntry> entries;
+	private final Map<String, RawZipEntry> entriesByName;
+
+	private RawZipFile(Path path, FileChannel channel, List<RawZipEntry> entries, Map<String, RawZipEntry> entriesByName) {
+		this.path = path;
+		this.channel = channel;
+		this.entries = entries;
+		this.entriesByName = entriesByName;
+	}
+
+	public static RawZipFile open(Path path) throws IOException {
+		return open(path, null);
+	}
+
+	/**
+	 * Opens the zip, reusing the central directory from a previous open of the same unchanged file when possible.
+	 *
+	 * @param cache the cache to read the central directory from and add it to, or null to always read it from the file
+	 */
+	public static RawZipFile open(Path path, @Nullable CentralDirectoryCache cache) throws IOException {
+		final Path key = path.toAbsolutePath().normalize();
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			CentralDirectoryCache.Directory directory = cache != null ? cache.get(key, attributes) : null;
+
+			if (directory == null || directory.size() != channel.size()) {
+				final List<RawZipEntry> entries = Collections.unmodifiableList(readCentralDirectory(path, channel));
+				final Map<String, RawZipEntry> entriesByName = new HashMap<>(entries.size() * 2);
+
+				for (RawZipEntry entry : entries) {
+					entriesByName.putIfAbsent(entry.name(), entry);
+				}
+
+				directory = CentralDirectoryCache.create(attributes, entries, Collections.unmodifiableMap(entriesByName));
+
+				if (cache != null) {
+					cache.put(key, directory);
+				}
+			}
+
+			return new RawZipFile(path, channel, directory.entries(), directory.entriesByName());
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return all the entries, in the order they are listed in the central directory
+	 */
+	public List<RawZipEntry> getEntries() {
+		return entries;
+	}
+
+	@Nullable
+	public RawZipEntry getEntry(String name) {
+		return entriesByName.get(name);
+	}
+
+	public boolean contains(String name) {
+		return entriesByName.containsKey(name);
+	}
+
+	public InputStream getInputStream(RawZipEntry entry) throws IOException {
+		final InputStream raw = new RegionInputStream(channel, getDataOffset(entry), entry.compressedSize());
+
+		return switch (entry.method()) {
+		case ZipEntry.STORED -> raw;
+		case ZipEntry.DEFLATED -> new EntryInflaterInputStream(raw, (int) Math.min(Math.max(entry.compressedSize(), 64), 64 * 1024));
+		default -> throw new ZipException("Unsupported compression method %d for %s in %s".formatted(entry.method(), entry.name(), path));
+		};
+	}
+
+	public byte[] readAllBytes(RawZipEntry entry) throws IOException {
+		if (entry.size() > Integer.MAX_VALUE - 8) {
+			throw new ZipException("Entry %s in %s is too large to read into memory".formatted(entry.name(), path));
+		}
+
+		if (entry.method() == ZipEntry.STORED && entry.size() == entry.compressedSize()) {
+			// Read straight into the result, without going through a stream
+			final byte[] data = new byte[(int) entry.size()];
+			readFully(ByteBuffer.wrap(data), getDataOffset(entry));
+			return data;
+		}
+
+		try (InputStream inputStream = getInputStream(entry)) {
+			return inputStream.readAllBytes();
+		}
+	}
+
+	public byte[] readAllBytes(String name) throws IOException {
+		return readAllBytes(getExistingEntry(name));
+	}
+
+	public InputStream getInputStream(String name) throws IOException {
+		return getInputStream(getExistingEntry(name));
+	}
+
+	private RawZipEntry getExistingEntry(String name) throws NoSuchFileException {
+		RawZipEntry entry = getEntry(name);
+
+		if (entry == null) {
+			throw new NoSuchFileException(name);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Reads the extra field from the local header, this can differ from the one in the central directory.
+	 */
+	byte[] readLocalExtra(RawZipEntry entry) throws IOException {
+		ByteBuffer header = readLocalHeader(entry);
+		int nameLength = header.getShort(26) & 0xFFFF;
+		int extraLength = header.getShort(28) & 0xFFFF;
+
+		if (extraLength == 0) {
+			return new byte[0];
+		}
+
+		ByteBuffer extra = ByteBuffer.allocate(extraLength);
+		readFully(extra, entry.localHeaderOffset() + ZipFormat.LOCAL_HEADER_SIZE + nameLength);
+		return extra.array();
+	}
+
+	/**
+	 * Copies the data of the entry exactly as it is stored in the zip to the target channel.
+	 */
+	void transferRaw(RawZipEntry entry, WritableByteChannel target) throws IOException {
+		long position = getDataOffset(entry);
+		long remaining = entry.compressedSize();
+
+		while (remaining > 0) {
+			long transferred = channel.transferTo(position, remaining, target);
+
+			if (transferred <= 0) {
+				throw new EOFException("Unexpected end of %s while copying %s".formatted(path, entry.name()));
+			}
+
+			position += transferred;
+			remaining -= transferred;
+		}
+	}
+
+	private long getDataOffset(RawZipEntry entry) throws IOException {
+		if ((entry.flags() & ZipFormat.FLAG_ENCRYPTED) != 0) {
+			throw new ZipException("Encrypted entry %s in %s is not supported".formatted(entry.name(), path));
+		}
+
+		ByteBuffer header = readLocalHeader(entry);
+		int nameLength = header.getShort(26) & 0xFFFF;
+		int extraLength = header.getShort(28) & 0xFFFF;
+		return entry.localHeaderOffset() + ZipFormat.LOCAL_HEADER_SIZE + nameLength + extraLength;
+	}
+
+	private ByteBuffer readLocalHeader(RawZipEntry entry) throws IOException {
+		ByteBuffer header = ZipFormat.allocate(ZipFormat.LOCAL_HEADER_SIZE);
+		readFully(header, entry.localHeaderOffset());
+
+		if (header.getInt(0) != ZipFormat.LOCAL_HEADER_SIG) {
+			throw new ZipException("Invalid local header for %s in %s".formatted(entry.name(), path));
+		}
+
+		return header;
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		readFully(channel, path, buffer, position);
+	}
+
+	private static void readFully(FileChannel channel, Path path, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+
+			if (read < 0) {
+				throw new EOFException("Unexpected end of " + path);
+			}
+
+			position += read;
+		}
+
+		buffer.flip();
+	}
+
+	private static List<RawZipEntry> readCentralDirectory(Path path, FileChannel channel) throws IOException {
+		final long fileSize = channel.size();
+
+		if (fileSize < ZipFormat.END_SIZE) {
+			throw new ZipException("Not a zip file: " + path);
+		}
+
+		// The end of central directory record is followed by a comment of up to 64k
+		final int tailLength = (int) Math.min(fileSize, ZipFormat.END_SIZE + 0xFFFF);
+		final long tailStart = fileSize - tailLength;
+		final ByteBuffer tail = ZipFormat.allocate(tailLength);
+		readFully(channel, path, tail, tailStart);
+
+		int endPos = -1;
+
+		for (int i = tailLength - ZipFormat.END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == ZipFormat.END_SIG) {
+				endPos = i;
+				break;
+			}
+		}
+
+		if (endPos < 0) {
+			throw new ZipException("Could not find the end of central directory in " + path);
+		}
+
+		long entryCount = tail.getShort(endPos + 10) & 0xFFFF;
+		long centralSize = tail.getInt(endPos + 12) & ZipFormat.ZIP64_MAGIC;
+		long centralOffset = tail.getInt(endPos + 16) & ZipFormat.ZIP64_MAGIC;
+
+		if (endPos >= ZipFormat.ZIP64_LOCATOR_SIZE && tail.getInt(endPos - ZipFormat.ZIP64_LOCATOR_SIZE) == ZipFormat.ZIP64_LOCATOR_SIG) {
+			final long zip64EndOffset = tail.getLong(endPos - ZipFormat.ZIP64_LOCATOR_SIZE + 8);
+			final ByteBuffer zip64End = ZipFormat.allocate(ZipFormat.ZIP64_END_SIZE);
+			readFully(channel, path, zip64End, zip64EndOffset);
+
+			if (zip64End.getInt(0) != ZipFormat.ZIP64_END_SIG) {
+				throw new ZipException("Invalid zip64 end of central directory in " + path);
+			}
+
+			entryCount = zip64End.getLong(32);
+			centralSize = zip64End.getLong(40);
+			centralOffset = zip64End.getLong(48);
+		}
+
+		if (centralSize > Integer.MAX_VALUE || centralOffset + centralSize > fileSize) {
+			throw new ZipException("Invalid central directory in " + path);
+		}
+
+		final ByteBuffer central = ZipFormat.allocate((int) centralSize);
+		readFully(channel, path, central, centralOffset);
+
+		final List<RawZipEntry> entries = new ArrayList<>((int) Math.min(entryCount, 0xFFFF));
+
+		while (central.remaining() >= ZipFormat.CENTRAL_HEADER_SIZE) {
+			final int start = central.position();
+
+			if (central.getInt(start) != ZipFormat.CENTRAL_HEADER_SIG) {
+				throw new ZipException("Invalid central directory header in " + path);
+			}
+
+			final int versionMadeBy = central.getShort(start + 4) & 0xFFFF;
+			final int flags = central.getShort(start + 8) & 0xFFFF;
+			final int method = central.getShort(start + 10) & 0xFFFF;
+			final int dosTime = central.getInt(start + 12);
+			final long crc = central.getInt(start + 16) & ZipFormat.ZIP64_MAGIC;
+			long compressedSize = central.getInt(start + 20) & ZipFormat.ZIP64_MAGIC;
+			long size = central.getInt(start + 24) & ZipFormat.ZIP64_MAGIC;
+			final int nameLength = central.getShort(start + 28) & 0xFFFF;
+			final int extraLength = central.getShort(start + 30) & 0xFFFF;
+			final int commentLength = central.getShort(start + 32) & 0xFFFF;
+			final int externalAttributes = central.getInt(start + 38);
+			long localHeaderOffset = central.getInt(start + 42) & ZipFormat.ZIP64_MAGIC;
+
+			final byte[] nameBytes = new byte[nameLength];
+			final byte[] extra = new byte[extraLength];
+			central.position(start + ZipFormat.CENTRAL_HEADER_SIZE);
+			central.get(nameBytes);
+			central.get(extra);
+			central.position(central.position() + commentLength);
+
+			if (size == ZipFormat.ZIP64_MAGIC || compressedSize == ZipFormat.ZIP64_MAGIC || localHeaderOffset == ZipFormat.ZIP64_MAGIC) {
+				final ByteBuffer zip64 = findZip64Extra(extra);
+
+				if (zip64 == null) {
+					throw new ZipException("Missing zip64 extra field in " + path);
+				}
+
+				if (size == ZipFormat.ZIP64_MAGIC) size = zip64.getLong();
+				if (compressedSize == ZipFormat.ZIP64_MAGIC) compressedSize = zip64.getLong();
+				if (localHeaderOffset == ZipFormat.ZIP64_MAGIC) localHeaderOffset = zip64.getLong();
+			}
+
+			final String name = new String(nameBytes, StandardCharsets.UTF_8);
+			entries.add(new RawZipEntry(name, versionMadeBy, flags, method, dosTime, crc, compressedSize, size, localHeaderOffset, externalAttributes, extra));
+		}
+
+		return entries;
+	}
+
+	@Nullable
+	private static ByteBuffer findZip64Extra(byte[] extra) {
+		ByteBuffer buffer = ZipFormat.allocate(extra.length).put(extra).flip();
+
+		while (buffer.remaining() >= 4) {
+			int id = buffer.getShort() & 0xFFFF;
+			int size = buffer.getShort() & 0xFFFF;
+
+			if (id == ZipFormat.ZIP64_EXTRA_ID) {
+				return buffer.slice(buffer.position(), Math.min(size, buffer.remaining())).order(buffer.order());
+			}
+
+			buffer.position(Math.min(buffer.position() + size, buffer.limit()));
+		}
+
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static final class RegionInputStream extends InputStream {
+		private final FileChannel channel;
+		private final long end;
+		private long position;
+
+		private RegionInputStream(FileChannel channel, long position, long length) {
+			this.channel = channel;
+			this.position = position;
+			this.end = position + length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position >= end) {
+				return -1;
+			}
+
+			final int toRead = (int) Math.min(len, end - position);
+			final int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+
+			if (read < 0) {
+				throw new EOFException("Unexpected end of zip entry");
+			}
+
+			position += read;
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(end - position, Integer.MAX_VALUE);
+		}
+	}
+
+	private static final class EntryInflaterInputStream extends InflaterInputStream {
+		private boolean eof = false;
+		private boolean closed = false;
+
+		private EntryInflaterInputStream(InputStream in, int size) {
+			super(in, new Inflater(true), size);
+		}
+
+		@Override
+		protected void fill() throws IOException {
+			if (eof) {
+				throw new EOFException("Unexpected end of ZLIB input stream");
+			}
+
+			len = in.read(buf, 0, buf.length);
+
+			if (len == -1) {
+				// A nowrap inflater needs an extra dummy byte at the end, see Inflater
+				buf[0] = 0;
+				len = 1;
+				eof = true;
+			}
+
+			inf.setInput(buf, 0, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				super.close();
+				inf.end();
+			}
+		}
+	}
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.util.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip file to a channel, either from uncompressed data or by copying the compressed data of an entry in a {@link RawZipFile}.
+ *
+ * <p>Sizes and CRCs are always written to the local header, no data descriptors are used. Entries can be added from multiple threads,
+ * compression happens on the calling thread and only the write itself is synchronized.
+ *
+ * <p>Headers and small entries are collected in a fixed size buffer, copied entries are transferred straight from the source channel.
+ */
+public final class RawZipWriter implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final List<CentralEntry> centralEntries = new ArrayList<>();
+	private final Set<String> names = new HashSet<>();
+	private long position = 0;
+	private boolean closed = false;
+
+	public RawZipWriter(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public static RawZipWriter create(Path path) throws IOException {
+		return new RawZipWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Copies an entry from another zip, without decompressing and compressing the data again.
+	 */
+	public synchronized void copyRaw(RawZipFile source, RawZipEntry entry) throws IOException {
+		byte[] localExtra = ZipFormat.stripZip64Extra(source.readLocalExtra(entry));
+		byte[] centralExtra = ZipFormat.stripZip64Extra(entry.extra());
+		copyRaw(source, entry, entry.dosTime(), localExtra, centralExtra);
+	}
+
+	/**
+	 * Copies an entry from another zip, without decompressing and compressing the data again.
+	 *
+	 * <p>The entry gets the given last modified time, any extra data (such as extended timestamps) is dropped.
+	 */
+	public synchronized void copyRaw(RawZipFile source, RawZipEntry entry, long time) throws IOException {
+		copyRaw(source, entry, ZipFormat.javaToDosTime(time), new byte[0], new byte[0]);
+	}
+
+	private void copyRaw(RawZipFile source, RawZipEntry entry, int dosTime, byte[] localExtra, byte[] centralExtra) throws IOException {
+		final int flags = (entry.flags() & ~ZipFormat.FLAG_DATA_DESCRIPTOR) | ZipFormat.FLAG_UTF8;
+		final CentralEntry centralEntry = new CentralEntry(entry.name(), entry.versionMadeBy(), flags, entry.method(), dosTime, entry.crc(), entry.compressedSize(), entry.size(), position, entry.externalAttributes(), centralExtra);
+		writeLocalHeader(centralEntry, localExtra);
+		flush();
+		source.transferRaw(entry, channel);
+		position += entry.compressedSize();
+	}
+
+	/**
+	 * Adds an entry with the given uncompressed data, the data is compressed on the calling thread.
+	 */
+	public void putEntry(String name, byte[] data, long time) throws IOException {
+		putCompressed(compress(name, data), time);
+	}
+
+	public void putEntry(String name, byte[] data) throws IOException {
+		putEntry(name, data, System.currentTimeMillis());
+	}
+
+	/**
+	 * Adds an entry that was compressed ahead of time with {@link #compress(String, byte[])}.
+	 */
+	public synchronized void putCompressed(CompressedEntry entry, long time) throws IOException {
+		final int method = entry.name().endsWith("/") ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		writeLocalHeader(new CentralEntry(entry.name(), ZipFormat.versionNeeded(method), ZipFormat.FLAG_UTF8, method, ZipFormat.javaToDosTime(time), entry.crc(), entry.data().length, entry.size(), position, 0, new byte[0]), new byte[0]);
+		write(ByteBuffer.wrap(entry.data()));
+	}
+
+	/**
+	 * Compresses the data of an entry, directories are stored uncompressed.
+	 */
+	public static CompressedEntry compress(String name, byte[] data) {
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+		return new CompressedEntry(name, crc.getValue(), data.length, name.endsWith("/") ? data : deflate(data));
+	}
+
+	public synchronized boolean hasEntry(String name) {
+		return names.contains(name);
+	}
+
+	private static byte[] deflate(byte[] data) {
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			final byte[] buffer = new byte[8192];
+
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				out.write(buffer, 0, length);
+			}
+
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeLocalHeader(CentralEntry entry, byte[] extra) throws IOException {
+		if (closed) {
+			throw new IOException("Zip writer has been closed");
+		}
+
+		if (!names.add(entry.name())) {
+			throw new ZipException("Duplicate zip entry: " + entry.name());
+		}
+
+		if (entry.size() >= ZipFormat.ZIP64_MAGIC || entry.compressedSize() >= ZipFormat.ZIP64_MAGIC) {
+			throw new ZipException("Zip entry %s is too large".formatted(entry.name()));
+		}
+
+		final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer header = ZipFormat.allocate(ZipFormat.LOCAL_HEADER_SIZE + name.length + extra.length);
+		header.putInt(ZipFormat.LOCAL_HEADER_SIG);
+		header.putShort((short) entry.versionNeeded());
+		header.putShort((short) entry.flags());
+		header.putShort((short) entry.method());
+		header.putInt(entry.dosTime());
+		header.putInt((int) entry.crc());
+		header.putInt((int) entry.compressedSize());
+		header.putInt((int) entry.size());
+		header.putShort((short) name.length);
+		header.putShort((short) extra.length);
+		header.put(name);
+		header.put(extra);
+		header.flip();
+		write(header);
+
+		centralEntries.add(entry);
+	}
+
+	private void write(ByteBuffer data) throws IOException {
+		position += data.remaining();
+
+		if (data.remaining() > buffer.remaining()) {
+			flush();
+		}
+
+		if (data.remaining() >= BUFFER_SIZE) {
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+
+			return;
+		}
+
+		buffer.put(data);
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		try {
+			writeCentralDirectory();
+			flush();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		final long centralOffset = position;
+
+		for (CentralEntry entry : centralEntries) {
+			final boolean zip64Offset = entry.localHeaderOffset() >= ZipFormat.ZIP64_MAGIC;
+			final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+			final byte[] extra = zip64Offset ? withZip64Offset(entry.extra(), entry.localHeaderOffset()) : entry.extra();
+			final int versionNeeded = zip64Offset ? ZipFormat.VERSION_ZIP64 : entry.versionNeeded();
+			// Keep the host system of the source, the external attributes are only meaningful along with it
+			final int versionMadeBy = (entry.versionMadeBy() & 0xFF00) | Math.max(entry.versionMadeBy() & 0xFF, versionNeeded);
+
+			final ByteBuffer header = ZipFormat.allocate(ZipFormat.CENTRAL_HEADER_SIZE + name.length + extra.length);
+			header.putInt(ZipFormat.CENTRAL_HEADER_SIG);
+			header.putShort((short) versionMadeBy);
+			header.putShort((short) versionNeeded);
+			header.putShort((short) entry.flags());
+			header.putShort((short) entry.method());
+			header.putInt(entry.dosTime());
+			header.putInt((int) entry.crc());
+			header.putInt((int) entry.compressedSize());
+			header.putInt((int) entry.size());
+			header.putShort((short) name.length);
+			header.putShort((short) extra.length);
+			header.putShort((short) 0); // Comment length
+			header.putShort((short) 0); // Disk number
+			header.putShort((short) 0); // Internal attributes
+			header.putInt(entry.externalAttributes());
+			header.putInt(zip64Offset ? (int) ZipFormat.ZIP64_MAGIC : (int) entry.localHeaderOffset());
+			header.put(name);
+			header.put(extra);
+			header.flip();
+			write(header);
+		}
+
+		final long centralSize = position - centralOffset;
+		final int entryCount = centralEntries.size();
+		final boolean zip64 = entryCount >= ZipFormat.ZIP64_MAGIC_COUNT || centralOffset >= ZipFormat.ZIP64_MAGIC || centralSize >= ZipFormat.ZIP64_MAGIC;
+
+		if (zip64) {
+			final long zip64EndOffset = position;
+			final ByteBuffer end = ZipFormat.allocate(ZipFormat.ZIP64_END_SIZE + ZipFormat.ZIP64_LOCATOR_SIZE);
+			end.putInt(ZipFormat.ZIP64_END_SIG);
+			end.putLong(ZipFormat.ZIP64_END_SIZE - 12);
+			end.putShort((short) ZipFormat.VERSION_ZIP64);
+			end.putShort((short) ZipFormat.VERSION_ZIP64);
+			end.putInt(0);
+			end.putInt(0);
+			end.putLong(entryCount);
+			end.putLong(entryCount);
+			end.putLong(centralSize);
+			end.putLong(centralOffset);
+
+			end.putInt(ZipFormat.ZIP64_LOCATOR_SIG);
+			end.putInt(0);
+			end.putLong(zip64EndOffset);
+			end.putInt(1);
+			end.flip();
+			write(end);
+		}
+
+		final ByteBuffer end = ZipFormat.allocate(ZipFormat.END_SIZE);
+		end.putInt(ZipFormat.END_SIG);
+		end.putShort((short) 0);
+		end.putShort((short) 0);
+		end.putShort((short) Math.min(entryCount, ZipFormat.ZIP64_MAGIC_COUNT));
+		end.putShort((short) Math.min(entryCount, ZipFormat.ZIP64_MAGIC_COUNT));
+		end.putInt((int) Math.min(centralSize, ZipFormat.ZIP64_MAGIC));
+		end.putInt((int) Math.min(centralOffset, ZipFormat.ZIP64_MAGIC));
+		end.putShort((short) 0);
+		end.flip();
+		write(end);
+	}
+
+	private static byte[] withZip64Offset(byte[] extra, long offset) {
+		final ByteBuffer buffer = ZipFormat.allocate(extra.length + 12);
+		buffer.putShort((short) ZipFormat.ZIP64_EXTRA_ID);
+		buffer.putShort((short) 8);
+		buffer.putLong(offset);
+		buffer.put(extra);
+		return buffer.array();
+	}
+
+	/**
+	 * The compressed data of an entry along with what is needed to write its headers.
+	 *
+	 * @param name the entry name
+	 * @param crc the CRC-32 of the uncompressed data
+	 * @param size the size of the uncompressed data
+	 * @param data the compressed data
+	 */
+	public record CompressedEntry(String name, long crc, long size, byte[] data) {
+	}
+
+	private record CentralEntry(String name, int versionMadeBy, int flags, int method, int dosTime, long crc, long compressedSize, long size, long localHeaderOffset, int externalAttributes, byte[] extra) {
+		int versionNeeded() {
+			return ZipFormat.versionNeeded(method);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.ZipEntry;
+
+/**
+ * Constants and helpers for the parts of the zip format (APPNOTE.TXT) that loom reads and writes itself.
+ */
+final class ZipFormat {
+	static final int LOCAL_HEADER_SIG = 0x04034b50;
+	static final int CENTRAL_HEADER_SIG = 0x02014b50;
+	static final int END_SIG = 0x06054b50;
+	static final int ZIP64_END_SIG = 0x06064b50;
+	static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_SIZE = 22;
+	static final int ZIP64_END_SIZE = 56;
+	static final int ZIP64_LOCATOR_SIZE = 20;
+
+	static final int ZIP64_EXTRA_ID = 0x0001;
+	static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	static final int FLAG_ENCRYPTED = 1;
+	static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	static final int FLAG_UTF8 = 1 << 11;
+
+	static final int VERSION_STORED = 10;
+	static final int VERSION_DEFLATED = 20;
+	static final int VERSION_ZIP64 = 45;
+
+	private ZipFormat() {
+	}
+
+	static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	static int versionNeeded(int method) {
+		return method == ZipEntry.DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+	}
+
+	static int javaToDosTime(long time) {
+		LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+		int year = dateTime.getYear() - 1980;
+
+		if (year < 0) {
+			// The earliest time that can be represented, 1980-01-01 00:00:00
+			return (1 << 21) | (1 << 16);
+		}
+
+		return year << 25
+				| dateTime.getMonthValue() << 21
+				| dateTime.getDayOfMonth() << 16
+				| dateTime.getHour() << 11
+				| dateTime.getMinute() << 5
+				| dateTime.getSecond() >> 1;
+	}
+
+	static long dosToJavaTime(int dosTime) {
+		int year = ((dosTime >> 25) & 0x7F) + 1980;
+		int month = Math.max((dosTime >> 21) & 0x0F, 1);
+		int day = Math.max((dosTime >> 16) & 0x1F, 1);
+		int hour = (dosTime >> 11) & 0x1F;
+		int minute = (dosTime >> 5) & 0x3F;
+		int second = (dosTime << 1) & 0x3E;
+
+		try {
+			LocalDateTime dateTime = LocalDateTime.of(year, Math.min(month, 12), day, hour, minute, second);
+			return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		} catch (DateTimeException e) {
+			// Not a valid date, fall back to the epoch
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a copy of the given extra data without any zip64 field, as the writer decides on its own if one is needed.
+	 */
+	static byte[] stripZip64Extra(byte[] extra) {
+		if (extra.length == 0) {
+			return extra;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(extra.length);
+
+		while (buffer.remaining() >= 4) {
+			int start = buffer.position();
+			int id = buffer.getShort() & 0xFFFF;
+			int size = buffer.getShort() & 0xFFFF;
+
+			if (size > buffer.remaining()) {
+				// Malformed trailing data, drop it rather than copy something broken.
+				break;
+			}
+
+			buffer.position(buffer.position() + size);
+
+			if (id != ZIP64_EXTRA_ID) {
+				out.write(extra, start, 4 + size);
+			}
+		}
+
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.util.zip;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.loom.util.CloseableList;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.tinyremapper.NonClassCopyMode;
+
+/**
+ * A replacement for tiny remapper's {@link net.fabricmc.tinyremapper.OutputConsumerPath} that writes straight to a zip file.
+ *
+ * <p>Non class files are copied from the input jar without being decompressed and compressed again,
+ * only the files that {@link NonClassCopyMode#FIX_META_INF} needs to change are rewritten.
+ *
+ * <p>Entries can be transformed or added while the jar is written, so that post-processing does not need to rewrite the jar again.
+ * When a reproducible file order is requested all the entries are kept in memory and written sorted by name on close.
+ * When the file timestamps are not preserved the jar is written in the same way as {@link ZipReprocessorUtil}, so every entry
+ * is compressed again.
+ */
+public class ZipOutputConsumer implements BiConsumer<String, byte[]>, Closeable {
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+	private static final String SERVICES_PREFIX = "META-INF/services/";
+
+	@Nullable
+	private final RawZipWriter writer;
+	@Nullable
+	private final ZipOutputStream reproducibleOutput;
+	private final boolean reproducibleFileOrder;
+	private final Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> transforms = new HashMap<>();
+	private final Map<String, byte[]> additions = new LinkedHashMap<>();
+	private final Set<String> transformed = ConcurrentHashMap.newKeySet();
+	private final Set<String> names = ConcurrentHashMap.newKeySet();
+	private final List<PendingEntry> pendingEntries = new ArrayList<>();
+	private final CloseableList<RawZipFile> inputs = new CloseableList<>();
+	private boolean closed = false;
+
+	public ZipOutputConsumer(Path output) throws IOException {
+		this(output, false, true);
+	}
+
+	/**
+	 * @param output the jar to write
+	 * @param reproducibleFileOrder whether entries should be written sorted by name
+	 * @param preserveFileTimestamps whether to keep the entry times, when false all entries get {@link ZipReprocessorUtil#CONSTANT_TIME_FOR_ZIP_ENTRIES}
+	 */
+	public ZipOutputConsumer(Path output, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
+		this.writer = preserveFileTimestamps ? RawZipWriter.create(output) : null;
+		this.reproducibleOutput = preserveFileTimestamps ? null : new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)));
+		this.reproducibleFileOrder = reproducibleFileOrder;
+	}
+
+	/**
+	 * Transforms a non class file when it is copied from an input, multiple transforms for the same path are applied in order.
+	 */
+	public synchronized ZipOutputConsumer transform(String path, ZipUtils.UnsafeUnaryOperator<byte[]> transformer) {
+		transforms.merge(path, transformer, (first, second) -> bytes -> second.apply(first.apply(bytes)));
+		return this;
+	}
+
+	/**
+	 * Adds an entry to the jar, replacing any non class file with the same path.
+	 */
+	public synchronized ZipOutputConsumer add(String path, byte[] data) {
+		additions.put(path, data);
+		return this;
+	}
+
+	/**
+	 * @return true if a transform was applied to the given path
+	 */
+	public boolean wasTransformed(String path) {
+		return transformed.contains(path);
+	}
+
+	@Override
+	public void accept(String className, byte[] data) {
+		try {
+			emit(createEntry(className + ".class", data));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write " + className, e);
+		}
+	}
+
+	public void addNonClassFiles(Path input) throws IOException {
+		addNonClassFiles(input, NonClassCopyMode.UNCHANGED, null);
+	}
+
+	public void addNonClassFiles(Path input, NonClassCopyMode copyMode, @Nullable Remapper remapper) throws IOException {
+		final RawZipFile zipFile = RawZipFile.open(input);
+
+		synchronized (inputs) {
+			inputs.add(zipFile);
+		}
+
+		for (RawZipEntry entry : zipFile.getEntries()) {
+			final String name = entry.name();
+
+			if (name.endsWith(".class") || names.contains(name) || isAdded(name)) {
+				continue;
+			}
+
+			final ZipUtils.UnsafeUnaryOperator<byte[]> transformer = getTransform(name);
+
+			if (transformer != null && !entry.isDirectory()) {
+				emit(createEntry(name, transformer.apply(zipFile.readAllBytes(entry))));
+				transformed.add(name);
+				continue;
+			}
+
+			if (copyMode == NonClassCopyMode.UNCHANGED || !name.startsWith("META-INF/")) {
+				emit(new PendingEntry.Raw(zipFile, entry));
+				continue;
+			}
+
+			if (copyMode == NonClassCopyMode.SKIP_META_INF) {
+				continue;
+			}
+
+			if (name.equals(MANIFEST_PATH)) {
+				emit(createEntry(name, fixManifest(zipFile.readAllBytes(entry), remapper)));
+			} else if (name.startsWith(SERVICES_PREFIX) && name.indexOf('/', SERVICES_PREFIX.length()) < 0 && !entry.isDirectory()) {
+				final String serviceName = SERVICES_PREFIX + mapClassName(name.substring(SERVICES_PREFIX.length()), remapper);
+				emit(createEntry(serviceName, fixServiceDeclaration(zipFile.readAllBytes(entry), remapper)));
+			} else if (!isSignatureFile(name)) {
+				emit(new PendingEntry.Raw(zipFile, entry));
+			}
+		}
+	}
+
+	private synchronized boolean isAdded(String name) {
+		return additions.containsKey(name);
+	}
+
+	@Nullable
+	private synchronized ZipUtils.UnsafeUnaryOperator<byte[]> getTransform(String name) {
+		return transforms.get(name);
+	}
+
+	private PendingEntry createEntry(String name, byte[] data) {
+		// The reproducible output compresses the data itself
+		return reproducibleOutput != null ? new PendingEntry.Uncompressed(name, data) : new PendingEntry.Compressed(RawZipWriter.compress(name, data));
+	}
+
+	private void emit(PendingEntry entry) throws IOException {
+		if (!names.add(entry.name())) {
+			if (entry.name().endsWith("/")) {
+				// Already added as the parent of another entry
+				return;
+			}
+
+			throw new ZipException("Duplicate zip entry: " + entry.name());
+		}
+
+		addParentDirectories(entry.name());
+		queue(entry);
+	}
+
+	/**
+	 * Adds an entry for each parent directory that does not have one yet, as {@link net.fabricmc.tinyremapper.OutputConsumerPath} does.
+	 */
+	private void addParentDirectories(String name) throws IOException {
+		final int end = name.lastIndexOf('/', name.length() - 2);
+
+		if (end < 0) {
+			return;
+		}
+
+		final String parent = name.substring(0, end + 1);
+
+		if (names.add(parent)) {
+			addParentDirectories(parent);
+			queue(createEntry(parent, new byte[0]));
+		}
+	}
+
+	private void queue(PendingEntry entry) throws IOException {
+		if (reproducibleFileOrder) {
+			synchronized (pendingEntries) {
+				pendingEntries.add(entry);
+			}
+		} else {
+			write(entry);
+		}
+	}
+
+	private void write(PendingEntry entry) throws IOException {
+		if (reproducibleOutput != null) {
+			final byte[] data = entry instanceof PendingEntry.Raw raw ? raw.zipFile().readAllBytes(raw.entry()) : ((PendingEntry.Uncompressed) entry).data();
+
+			synchronized (reproducibleOutput) {
+				ZipReprocessorUtil.putReproducibleEntry(reproducibleOutput, entry.name(), data);
+			}
+		} else if (entry instanceof PendingEntry.Compressed compressed) {
+			writer.putCompressed(compressed.entry(), System.currentTimeMillis());
+		} else if (entry instanceof PendingEntry.Raw raw) {
+			writer.copyRaw(raw.zipFile(), raw.entry());
+		}
+	}
+
+	/**
+	 * Strips the signing information from the manifest, and remaps the main and agent classes.
+	 */
+	private static byte[] fixManifest(byte[] input, @Nullable Remapper remapper) throws IOException {
+		final Manifest manifest = new Manifest(new ByteArrayInputStream(input));
+		final Attributes mainAttributes = manifest.getMainAttributes();
+
+		if (remapper != null) {
+			for (String attribute : List.of(Attributes.Name.MAIN_CLASS.toString(), "Launcher-Agent-Class")) {
+				String value = mainAttributes.getValue(attribute);
+
+				if (value != null) {
+					mainAttributes.putValue(attribute, mapClassName(value, remapper));
+				}
+			}
+		}
+
+		mainAttributes.remove(Attributes.Name.SIGNATURE_VERSION);
+
+		manifest.getEntries().values().removeIf(attributes -> {
+			attributes.keySet().removeIf(key -> {
+				final String attribute = key.toString();
+				return attribute.endsWith("-Digest") || attribute.contains("-Digest-") || attribute.equals("Magic");
+			});
+
+			return attributes.isEmpty();
+		});
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.write(out);
+		return out.toByteArray();
+	}
+
+	private static byte[] fixServiceDeclaration(byte[] input, @Nullable Remapper remapper) throws IOException {
+		final StringBuilder output = new StringBuilder();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				final int commentStart = line.indexOf('#');
+				final String className = (commentStart >= 0 ? line.substring(0, commentStart) : line).trim();
+
+				if (!className.isEmpty()) {
+					output.append(mapClassName(className, remapper)).append('\n');
+				}
+			}
+		}
+
+		return output.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String mapClassName(String className, @Nullable Remapper remapper) {
+		if (remapper == null) {
+			return className;
+		}
+
+		return remapper.map(className.replace('.', '/')).replace('/', '.');
+	}
+
+	private static boolean isSignatureFile(String name) {
+		if (name.indexOf('/', "META-INF/".length()) >= 0) {
+			return false;
+		}
+
+		final String fileName = name.substring("META-INF/".length());
+		return fileName.endsWith(".SF") || fileName.endsWith(".RSA") || fileName.endsWith(".DSA") || fileName.endsWith(".EC") || fileName.startsWith("SIG-");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try (CloseableList<RawZipFile> ignored = inputs; Closeable ignored1 = writer != null ? writer : reproducibleOutput) {
+			final Map<String, byte[]> toAdd;
+
+			synchronized (this) {
+				toAdd = new LinkedHashMap<>(additions);
+			}
+
+			for (Map.Entry<String, byte[]> entry : toAdd.entrySet()) {
+				emit(createEntry(entry.getKey(), entry.getValue()));
+			}
+
+			synchronized (pendingEntries) {
+				pendingEntries.sort(Comparator.comparing(PendingEntry::name));
+
+				for (PendingEntry entry : pendingEntries) {
+					write(entry);
+				}
+
+				pendingEntries.clear();
+			}
+		}
+	}
+
+	private sealed interface PendingEntry {
+		String name();
+
+		record Compressed(RawZipWriter.CompressedEntry entry) implements PendingEntry {
+			@Override
+			public String name() {
+				return entry.name();
+			}
+		}
+
+		record Uncompressed(String name, byte[] data) implements PendingEntry {
+		}
+
+		record Raw(RawZipFile zipFile, RawZipEntry entry) implements PendingEntry {
+			@Override
+			public String name() {
+				return entry.name();
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.util.ArtifactStore
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ArtifactStoreTest extends Specification {
+    def "link stored artifact"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def store = ArtifactStore.create(dir.resolve("cache"))
+            def first = dir.resolve("1.18/minecraft-client.jar")
+            def second = dir.resolve("1.19/minecraft-client.jar")
+            Files.createDirectories(first.parent)
+            first.text = "Hello"
+
+        when:
+            def linkedBeforeStore = store.link("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0", second)
+            store.store("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0", first)
+            def linked = store.link("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0", second)
+
+        then:
+            !linkedBeforeStore
+            linked
+            second.text == "Hello"
+            Files.isSameFile(first, second)
+    }
+
+    def "collect garbage"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def store = ArtifactStore.create(dir.resolve("cache"))
+            def first = dir.resolve("1.18/minecraft-client.jar")
+            def second = dir.resolve("1.19/minecraft-client.jar")
+            Files.createDirectories(first.parent)
+            first.text = "Hello"
+            store.store("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0", first)
+            store.link("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0", second)
+
+        when:
+            Files.delete(first)
+            def stillUsed = store.collectGarbage()
+            Files.delete(second)
+            def unused = store.collectGarbage()
+
+        then:
+            stillUsed.removedObjects() == 0
+            stillUsed.remainingObjects() == 1
+            unused.removedObjects() == 1
+            unused.freedBytes() == 5
+            !Files.exists(store.getObject("f7ff9e8b7bb2e09b70935a5d785e0cc5d9d0abf0"))
+    }
+}
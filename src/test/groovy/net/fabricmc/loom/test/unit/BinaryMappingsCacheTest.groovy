@@ -0,0 +1,111 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingsCache
+import net.fabricmc.loom.test.util.MappingsTestTrait
+import net.fabricmc.mappingio.format.Tiny2Writer
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class BinaryMappingsCacheTest extends Specification implements MappingsTestTrait {
+    def "read mappings through the cache"() {
+        given:
+            def mappings = copyTestMappings()
+
+        when:
+            def fromText = BinaryMappingsCache.read(mappings)
+            def cacheModified = Files.getLastModifiedTime(BinaryMappingsCache.getCachePath(mappings))
+            // Only the binary copy still has the old names
+            replaceUnnoticed(mappings, "tick", "tock")
+            def fromCache = BinaryMappingsCache.read(mappings)
+
+        then:
+            Files.getLastModifiedTime(BinaryMappingsCache.getCachePath(mappings)) == cacheModified
+            toTiny(fromText) == toTiny(fromCache)
+            toTiny(fromCache).contains("tick")
+            toTiny(fromCache).contains("An entity.")
+    }
+
+    def "changed mappings are read again"() {
+        given:
+            def mappings = copyTestMappings()
+            BinaryMappingsCache.read(mappings)
+
+        when:
+            mappings.text = mappings.text.replace("tick", "update")
+            Files.setLastModifiedTime(mappings, FileTime.fromMillis(0))
+            def mappingTree = BinaryMappingsCache.read(mappings)
+
+        then:
+            toTiny(mappingTree).contains("update")
+    }
+
+    def "one-off mappings are read without a binary copy"() {
+        given:
+            def mappings = Files.copy(testMappings, File.createTempDir().toPath().resolve("loom-transitive-mappings.tiny"))
+
+        when:
+            def mappingTree = BinaryMappingsCache.read(mappings, false)
+
+        then:
+            !Files.exists(BinaryMappingsCache.getCachePath(mappings))
+            toTiny(mappingTree).contains("An entity.")
+    }
+
+    def "an existing binary copy is still used"() {
+        given:
+            def mappings = copyTestMappings()
+            def fromText = BinaryMappingsCache.read(mappings)
+
+        when:
+            replaceUnnoticed(mappings, "tick", "tock")
+            def fromCache = BinaryMappingsCache.read(mappings, false)
+
+        then:
+            toTiny(fromText) == toTiny(fromCache)
+            !toTiny(fromCache).contains("tock")
+    }
+
+    /**
+     * Changes the mappings without changing their size or last modified time, so that the binary copy is still seen as up-to-date.
+     */
+    private static void replaceUnnoticed(Path mappings, String target, String replacement) {
+        assert target.length() == replacement.length()
+        def lastModified = Files.getLastModifiedTime(mappings)
+        mappings.text = mappings.text.replace(target, replacement)
+        Files.setLastModifiedTime(mappings, lastModified)
+    }
+
+    private static String toTiny(MemoryMappingTree mappingTree) {
+        def writer = new StringWriter()
+        mappingTree.accept(new Tiny2Writer(writer, false))
+        return writer.toString()
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.processors.dependency.RemappedModMetadata
+import net.fabricmc.loom.util.ClasspathAbiCache
+import net.fabricmc.loom.util.ZipUtils
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class ClasspathAbiCacheTest extends Specification {
+    def "hash only changes with the abi"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def jar = dir.resolve("mod.jar")
+
+        when:
+            writeJar(jar, "hello", "run")
+            def first = cache.get(jar)
+            writeJar(jar, "goodbye", "run")
+            def codeChanged = cache.get(jar)
+            writeJar(jar, "goodbye", "walk")
+            def methodRenamed = cache.get(jar)
+
+        then:
+            first.path() == codeChanged.path()
+            first.hash() == codeChanged.hash()
+            first.hash() != methodRenamed.hash()
+    }
+
+    def "code is stripped"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def jar = dir.resolve("mod.jar")
+            writeJar(jar, "hello", "run")
+            ZipUtils.add(jar, "fabric.mod.json", "{}")
+
+        when:
+            def abi = cache.get(jar)
+            def node = new ClassNode()
+            new ClassReader(ZipUtils.unpack(abi.path(), "test/Example.class")).accept(node, 0)
+
+        then:
+            !ZipUtils.contains(abi.path(), "fabric.mod.json")
+            node.superName == "java/lang/Object"
+            node.methods*.name == ["run"]
+            node.methods[0].instructions.size() == 0
+    }
+
+    def "lambdas are kept but not hashed"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def jar = dir.resolve("mod.jar")
+
+        when:
+            writeJar(jar, "hello", "run")
+            def withoutLambda = cache.get(jar)
+            writeJar(jar, "hello", "run", "method_1234")
+            def withLambda = cache.get(jar)
+            def node = new ClassNode()
+            new ClassReader(ZipUtils.unpack(withLambda.path(), "test/Example.class")).accept(node, 0)
+
+        then:
+            node.methods*.name == ["run", "method_1234"]
+            withoutLambda.hash() == withLambda.hash()
+    }
+
+    def "only the changed mod is remapped"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def first = dir.resolve("first.jar")
+            def second = dir.resolve("second.jar")
+            writeJar(first, "hello", "run")
+            writeJar(second, "hello", "walk")
+            def classpath = [first, second]
+            def firstOutput = dir.resolve("first-remapped.jar").toFile()
+            def secondOutput = dir.resolve("second-remapped.jar").toFile()
+            firstOutput.bytes = Files.readAllBytes(first)
+            secondOutput.bytes = Files.readAllBytes(second)
+
+            def abis = cache.getAll(classpath)
+            def firstMetadata = RemappedModMetadata.create(first.toFile(), firstOutput, "mappings", ClasspathAbiCache.combinedHash(classpath, abis, first), null)
+            def secondMetadata = RemappedModMetadata.create(second.toFile(), secondOutput, "mappings", ClasspathAbiCache.combinedHash(classpath, abis, second), null)
+
+        when:
+            // A new version of the first mod that only changes its code
+            writeJar(first, "goodbye", "run")
+            abis = cache.getAll(classpath)
+
+        then:
+            !firstMetadata.isUpToDate(first.toFile(), firstOutput, "mappings", ClasspathAbiCache.combinedHash(classpath, abis, first))
+            secondMetadata.isUpToDate(second.toFile(), secondOutput, "mappings", ClasspathAbiCache.combinedHash(classpath, abis, second))
+    }
+
+    def "directories are hashed by their classes"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def classes = dir.resolve("classes")
+            def nested = classes.resolve("test/Example.class")
+            Files.createDirectories(nested.parent)
+
+        when:
+            Files.write(nested, writeClass("hello", "run"))
+            def first = cache.get(classes)
+            Files.write(nested, writeClass("goodbye", "run"))
+            def codeChanged = cache.get(classes)
+            Files.write(nested, writeClass("goodbye", "walk"))
+            def methodRenamed = cache.get(classes)
+
+        then:
+            first.path() == classes
+            first.hash() == codeChanged.hash()
+            first.hash() != methodRenamed.hash()
+    }
+
+    def "garbage collection removes copies of changed and missing jars"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def cache = ClasspathAbiCache.create(dir.resolve("cache"))
+            def kept = dir.resolve("kept.jar")
+            def changed = dir.resolve("changed.jar")
+            def removed = dir.resolve("removed.jar")
+            writeJar(kept, "hello", "run")
+            writeJar(changed, "hello", "run")
+            writeJar(removed, "hello", "run")
+            def keptAbi = cache.get(kept)
+            def changedAbi = cache.get(changed)
+            def removedAbi = cache.get(removed)
+
+        when:
+            writeJar(changed, "hello", "walk")
+            Files.delete(removed)
+            def result = cache.collectGarbage()
+
+        then:
+            result.removedCopies() == 2
+            result.remainingCopies() == 1
+            result.freedBytes() > 0
+            Files.exists(keptAbi.path())
+            !Files.exists(changedAbi.path())
+            !Files.exists(removedAbi.path())
+            cache.get(kept) == keptAbi
+    }
+
+    private static int lastModified = 0
+
+    private static void writeJar(Path jar, String constant, String methodName, String lambdaName = null) {
+        Files.deleteIfExists(jar)
+        ZipUtils.add(jar, "test/Example.class", writeClass(constant, methodName, lambdaName))
+        // Make sure that each version is seen as a change
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(++lastModified * 10000L))
+    }
+
+    private static byte[] writeClass(String constant, String methodName, String lambdaName = null) {
+        def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "test/Example", null, "java/lang/Object", null)
+        writeMethod(writer, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, methodName, constant)
+
+        if (lambdaName != null) {
+            writeMethod(writer, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, lambdaName, constant)
+        }
+
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+
+    private static void writeMethod(ClassWriter writer, int access, String name, String constant) {
+        def method = writer.visitMethod(access, name, "()Ljava/lang/String;", null, null)
+        method.visitCode()
+        method.visitLdcInsn(constant)
+        method.visitInsn(Opcodes.ARETURN)
+        method.visitMaxs(0, 0)
+        method.visitEnd()
+    }
+}
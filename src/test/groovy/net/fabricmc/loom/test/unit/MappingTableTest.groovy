@@ -0,0 +1,133 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.test.util.MappingsTestTrait
+import net.fabricmc.loom.util.MappingTable
+import net.fabricmc.tinyremapper.IMappingProvider
+import spock.lang.Specification
+
+class MappingTableTest extends Specification implements MappingsTestTrait {
+    def "load mappings"() {
+        given:
+            def table = MappingTable.create(readTestMappings(), "intermediary", "named", remapLocals)
+
+        when:
+            def first = load(table)
+            def second = load(table)
+
+        then:
+            first == expected
+            second == expected
+
+        where:
+            remapLocals | expected
+            false       | [
+                    "class net/minecraft/class_1 -> net/minecraft/Entity",
+                    "class net/minecraft/class_1\$class_2 -> net/minecraft/Entity\$Inner",
+                    "class net/minecraft/class_3 -> net/minecraft/class_3",
+                    "field net/minecraft/class_1.field_1:I -> age",
+                    "method net/minecraft/class_1.method_1(Lnet/minecraft/class_1;)V -> tick"
+            ]
+            true        | [
+                    "class net/minecraft/class_1 -> net/minecraft/Entity",
+                    "class net/minecraft/class_1\$class_2 -> net/minecraft/Entity\$Inner",
+                    "class net/minecraft/class_3 -> net/minecraft/class_3",
+                    "field net/minecraft/class_1.field_1:I -> age",
+                    "method net/minecraft/class_1.method_1(Lnet/minecraft/class_1;)V -> tick",
+                    "arg net/minecraft/class_1.method_1(Lnet/minecraft/class_1;)V 1 -> other",
+                    "var net/minecraft/class_1.method_1(Lnet/minecraft/class_1;)V 2 -> ticks"
+            ]
+    }
+
+    def "members are reused"() {
+        given:
+            def table = MappingTable.create(readTestMappings(), "intermediary", "named", true)
+            def members = []
+            def acceptor = new IMappingProvider.MappingAcceptor() {
+                @Override
+                void acceptClass(String srcName, String dstName) {
+                }
+
+                @Override
+                void acceptMethod(IMappingProvider.Member method, String dstName) {
+                    members << method
+                }
+
+                @Override
+                void acceptMethodArg(IMappingProvider.Member method, int lvIndex, String dstName) {
+                    members << method
+                }
+
+                @Override
+                void acceptMethodVar(IMappingProvider.Member method, int lvIndex, int startOpIdx, int asmIndex, String dstName) {
+                    members << method
+                }
+
+                @Override
+                void acceptField(IMappingProvider.Member field, String dstName) {
+                }
+            }
+
+        when:
+            table.load(acceptor)
+            table.load(acceptor)
+
+        then:
+            members.size() == 6
+            members.every { it.is(members[0]) }
+    }
+
+    private static List<String> load(MappingTable table) {
+        def accepted = []
+        table.load(new IMappingProvider.MappingAcceptor() {
+            @Override
+            void acceptClass(String srcName, String dstName) {
+                accepted << "class $srcName -> $dstName".toString()
+            }
+
+            @Override
+            void acceptMethod(IMappingProvider.Member method, String dstName) {
+                accepted << "method ${method.owner}.${method.name}${method.desc} -> $dstName".toString()
+            }
+
+            @Override
+            void acceptMethodArg(IMappingProvider.Member method, int lvIndex, String dstName) {
+                accepted << "arg ${method.owner}.${method.name}${method.desc} $lvIndex -> $dstName".toString()
+            }
+
+            @Override
+            void acceptMethodVar(IMappingProvider.Member method, int lvIndex, int startOpIdx, int asmIndex, String dstName) {
+                accepted << "var ${method.owner}.${method.name}${method.desc} $lvIndex -> $dstName".toString()
+            }
+
+            @Override
+            void acceptField(IMappingProvider.Member field, String dstName) {
+                accepted << "field ${field.owner}.${field.name}:${field.desc} -> $dstName".toString()
+            }
+        })
+        return accepted
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.test.util.MappingsTestTrait
+import net.fabricmc.loom.util.MappingTreeRemapper
+import org.objectweb.asm.commons.Remapper
+import spock.lang.Specification
+
+class MappingTreeRemapperTest extends Specification implements MappingsTestTrait {
+    def "map names"() {
+        given:
+            def remapper = MappingTreeRemapper.create(readTestMappings(), "intermediary", "named", null)
+
+        expect:
+            remapper.map("net/minecraft/class_1") == "net/minecraft/Entity"
+            remapper.map("net/minecraft/class_1\$class_2") == "net/minecraft/Entity\$Inner"
+            remapper.map("net/minecraft/class_1\$1") == "net/minecraft/Entity\$1"
+            remapper.map("com/example/Mod") == "com/example/Mod"
+            remapper.mapFieldName("net/minecraft/class_1", "field_1", "I") == "age"
+            remapper.mapMethodName("net/minecraft/class_1", "method_1", "(Lnet/minecraft/class_1;)V") == "tick"
+            remapper.mapMethodName("net/minecraft/class_1", "method_1", "()V") == "method_1"
+            remapper.mapMethodName("net/minecraft/class_1", "<init>", "()V") == "<init>"
+    }
+
+    def "inherited members use the fallback"() {
+        given:
+            def lookups = []
+            def fallback = new Remapper() {
+                @Override
+                String mapMethodName(String owner, String name, String descriptor) {
+                    lookups << owner + "." + name
+                    return "tick"
+                }
+
+                @Override
+                String mapFieldName(String owner, String name, String descriptor) {
+                    lookups << owner + "." + name
+                    return "age"
+                }
+            }
+            def created = 0
+            def remapper = MappingTreeRemapper.create(readTestMappings(), "intermediary", "named", { created++; fallback })
+
+        when:
+            def unmapped = remapper.mapMethodName("net/minecraft/class_3", "toString", "()Ljava/lang/String;")
+            def inheritedMethod = remapper.mapMethodName("net/minecraft/class_3", "method_1", "(Lnet/minecraft/class_1;)V")
+            def inheritedField = remapper.mapFieldName("net/minecraft/class_3", "field_1", "I")
+
+        then:
+            unmapped == "toString"
+            inheritedMethod == "tick"
+            inheritedField == "age"
+            created == 1
+            lookups == ["net/minecraft/class_3.method_1", "net/minecraft/class_3.field_1"]
+    }
+}
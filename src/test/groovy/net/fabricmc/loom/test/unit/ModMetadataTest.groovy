@@ -0,0 +1,87 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.mods.ModMetadata
+import net.fabricmc.loom.util.ZipUtils
+import spock.lang.Specification
+
+class ModMetadataTest extends Specification {
+    def "read mod metadata"() {
+        given:
+            def dir = File.createTempDir()
+            def jar = File.createTempFile("loom-mod-test", ".jar").toPath()
+            new File(dir, "fabric.mod.json").text = '{"id": "test", "accessWidener": "test.accesswidener", "custom": {"loom:injected_interfaces": {"net/minecraft/class_1": ["test/Iface"]}}}'
+            new File(dir, "test.accesswidener").text = "accessWidener v1 named\n"
+            ZipUtils.pack(dir.toPath(), jar)
+
+        when:
+            def metadata = ModMetadata.read(jar)
+
+        then:
+            metadata.mod()
+            metadata.modId() == "test"
+            metadata.accessWidenerPath() == "test.accesswidener"
+            metadata.accessWidenerNamespace() == "named"
+            new String(metadata.readAccessWidener(jar, null)) == "accessWidener v1 named\n"
+            metadata.injectedInterfaces() == ["net/minecraft/class_1": ["test/Iface"]]
+            !metadata.hasInstallerJson()
+            metadata.readInstallerJson(jar, null) == null
+    }
+
+    def "read none mod"() {
+        given:
+            def dir = File.createTempDir()
+            def jar = File.createTempFile("loom-mod-test", ".jar").toPath()
+            new File(dir, "test.txt").text = "Not a mod"
+            ZipUtils.pack(dir.toPath(), jar)
+
+        when:
+            def metadata = ModMetadata.read(jar)
+
+        then:
+            !metadata.mod()
+            metadata.modId() == null
+            metadata.accessWidenerPath() == null
+            metadata.readAccessWidener(jar, null) == null
+            metadata.injectedInterfaces().isEmpty()
+    }
+
+    def "read installer json on demand"() {
+        given:
+            def dir = File.createTempDir()
+            def jar = File.createTempFile("loom-mod-test", ".jar").toPath()
+            new File(dir, "fabric.mod.json").text = '{"id": "test"}'
+            new File(dir, "fabric-installer.json").text = '{"version": 1}'
+            ZipUtils.pack(dir.toPath(), jar)
+
+        when:
+            def metadata = ModMetadata.read(jar)
+
+        then:
+            metadata.hasInstallerJson()
+            metadata.readInstallerJson(jar, null).get("version").getAsInt() == 1
+    }
+}
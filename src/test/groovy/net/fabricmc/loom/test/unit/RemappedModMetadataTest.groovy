@@ -0,0 +1,110 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.processors.dependency.RemappedModMetadata
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class RemappedModMetadataTest extends Specification {
+    def "missing record"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def metadataPath = dir.resolve("mod.json")
+
+        when:
+            def missing = RemappedModMetadata.read(metadataPath)
+            RemappedModMetadata.create(writeInput(dir, "Input"), writeOutput(dir, "Output"), "mappings", "classpath", null).write(metadataPath)
+            def written = RemappedModMetadata.read(metadataPath)
+
+        then:
+            missing == null
+            written != null
+            // No temp files are left behind
+            Files.list(dir).map { it.fileName.toString() }.toList().sort() == ["input.jar", "mod.json", "output.jar"]
+    }
+
+    def "output size changed"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def input = writeInput(dir, "Input")
+            def output = writeOutput(dir, "Output")
+            def metadata = RemappedModMetadata.create(input, output, "mappings", "classpath", null)
+
+        when:
+            output.text = "Truncated"
+
+        then:
+            !metadata.isUpToDate(input, output, "mappings", "classpath")
+    }
+
+    def "input touched but unchanged"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def input = writeInput(dir, "Input")
+            def output = writeOutput(dir, "Output")
+            def metadata = RemappedModMetadata.create(input, output, "mappings", "classpath", null)
+
+        when:
+            Files.setLastModifiedTime(input.toPath(), FileTime.fromMillis(input.lastModified() + 10000L))
+            def updated = metadata.withInput(input)
+
+        then:
+            metadata.isUpToDate(input, output, "mappings", "classpath")
+            updated.inputLastModified() == input.lastModified()
+            updated.inputHash() == metadata.inputHash()
+    }
+
+    def "input content changed"() {
+        given:
+            def dir = File.createTempDir().toPath()
+            def input = writeInput(dir, "Input")
+            def output = writeOutput(dir, "Output")
+            def metadata = RemappedModMetadata.create(input, output, "mappings", "classpath", null)
+
+        when:
+            // Same size, only the content differs
+            input.text = "Other"
+            Files.setLastModifiedTime(input.toPath(), FileTime.fromMillis(input.lastModified() + 10000L))
+
+        then:
+            !metadata.isUpToDate(input, output, "mappings", "classpath")
+    }
+
+    private static File writeInput(Path dir, String content) {
+        def file = dir.resolve("input.jar").toFile()
+        file.text = content
+        return file
+    }
+
+    private static File writeOutput(Path dir, String content) {
+        def file = dir.resolve("output.jar").toFile()
+        file.text = content
+        return file
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.util.ZipReprocessorUtil
+import net.fabricmc.loom.util.ZipUtils
+import net.fabricmc.loom.util.zip.RawZipFile
+import net.fabricmc.loom.util.zip.ZipOutputConsumer
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+class ZipOutputConsumerTest extends Specification {
+    def "transform and add while writing"() {
+        given:
+            def dir = File.createTempDir()
+            def input = File.createTempFile("loom-zip-test", ".zip").toPath()
+            def output = File.createTempFile("loom-zip-test", ".zip").toPath()
+            new File(dir, "test.txt").text = "This is a test of transforming"
+            new File(dir, "replaced.txt").text = "This has not been replaced"
+            new File(dir, "other.txt").text = "Other"
+            ZipUtils.pack(dir.toPath(), input)
+
+        when:
+            def consumer = new ZipOutputConsumer(output, true, false)
+            consumer.transform("test.txt", { bytes -> new String(bytes, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8) } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+            consumer.add("replaced.txt", "This has been replaced".getBytes(StandardCharsets.UTF_8))
+            consumer.add("added.txt", "Added".getBytes(StandardCharsets.UTF_8))
+            consumer.addNonClassFiles(input)
+            consumer.accept("net/fabricmc/Test", [1, 2, 3] as byte[])
+            consumer.close()
+
+            def zipFile = RawZipFile.open(output)
+            def entries = zipFile.getEntries()
+
+        then:
+            consumer.wasTransformed("test.txt")
+            !consumer.wasTransformed("other.txt")
+            entries*.name() == ["added.txt", "net/", "net/fabricmc/", "net/fabricmc/Test.class", "other.txt", "replaced.txt", "test.txt"]
+            entries.every { it.lastModifiedTime().toMillis() == ZipReprocessorUtil.CONSTANT_TIME_FOR_ZIP_ENTRIES }
+            new String(zipFile.readAllBytes("test.txt"), StandardCharsets.UTF_8) == "THIS IS A TEST OF TRANSFORMING"
+            new String(zipFile.readAllBytes("replaced.txt"), StandardCharsets.UTF_8) == "This has been replaced"
+            zipFile.readAllBytes("net/fabricmc/Test.class") == [1, 2, 3] as byte[]
+
+        cleanup:
+            zipFile?.close()
+    }
+
+    def "reproducible output matches reprocessing"() {
+        given:
+            def dir = File.createTempDir()
+            def input = File.createTempFile("loom-zip-test", ".zip").toPath()
+            def singlePass = File.createTempFile("loom-zip-test", ".zip").toPath()
+            def reprocessed = File.createTempFile("loom-zip-test", ".zip").toPath()
+            new File(dir, "b.txt").text = "This is a test of reproducible output"
+            new File(dir, "a.txt").text = "Other"
+            ZipUtils.pack(dir.toPath(), input)
+
+        when:
+            def consumer = new ZipOutputConsumer(singlePass, true, false)
+            consumer.accept("net/fabricmc/Test", [1, 2, 3] as byte[])
+            consumer.addNonClassFiles(input)
+            consumer.close()
+
+            consumer = new ZipOutputConsumer(reprocessed)
+            consumer.accept("net/fabricmc/Test", [1, 2, 3] as byte[])
+            consumer.addNonClassFiles(input)
+            consumer.close()
+            ZipReprocessorUtil.reprocessZip(reprocessed.toFile(), true, false)
+
+        then:
+            Files.readAllBytes(singlePass) == Files.readAllBytes(reprocessed)
+    }
+}
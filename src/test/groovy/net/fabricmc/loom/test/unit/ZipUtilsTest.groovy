@@ -26,10 +26,18 @@ package net.fabricmc.loom.test.unit
 
 import net.fabricmc.loom.util.Pair
 import net.fabricmc.loom.util.ZipUtils
+import net.fabricmc.loom.util.service.SharedServiceManager
+import net.fabricmc.loom.util.zip.CentralDirectoryCache
+import net.fabricmc.loom.util.zip.RawZipFile
+import net.fabricmc.loom.util.zip.RawZipWriter
+import org.gradle.api.invocation.Gradle
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
+import java.nio.file.Path
 
 class ZipUtilsTest extends Specification {
     def "pack"() {
@@ -48,6 +56,78 @@ class ZipUtilsTest extends Specification {
             new String( ZipUtils.unpack(zip, "test.txt"), StandardCharsets.UTF_8) == "This is a test of packing"
     }
 
+    def "contains after the zip is replaced"() {
+        given:
+            def first = File.createTempDir()
+            def second = File.createTempDir()
+            def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+            new File(first, "first.txt").text = "First"
+            new File(second, "second.txt").text = "Second"
+
+        when:
+            ZipUtils.pack(first.toPath(), zip)
+            def containedFirst = ZipUtils.contains(zip, "first.txt")
+            ZipUtils.pack(second.toPath(), zip)
+
+        then:
+            containedFirst
+            !ZipUtils.contains(zip, "first.txt")
+            ZipUtils.contains(zip, "/second.txt")
+            new String(ZipUtils.unpack(zip, "second.txt"), StandardCharsets.UTF_8) == "Second"
+            ZipUtils.unpackNullable(zip, "first.txt") == null
+    }
+
+    def "central directory cache is reused while the zip is unchanged"() {
+        given:
+            def dir = File.createTempDir()
+            def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+            def cache = CentralDirectoryCache.getInstance(SharedServiceManager.get(Mock(Gradle)))
+            new File(dir, "test.txt").text = "This is cached"
+
+        when:
+            ZipUtils.pack(dir.toPath(), zip)
+            def first = RawZipFile.open(zip, cache)
+            first.close()
+            def second = RawZipFile.open(zip, cache)
+            second.close()
+            def uncached = RawZipFile.open(zip)
+            uncached.close()
+
+        then:
+            // The same parsed directory is returned when it comes from the cache
+            second.getEntries().is(first.getEntries())
+            !uncached.getEntries().is(first.getEntries())
+            ZipUtils.contains(zip, "test.txt", cache)
+            new String(ZipUtils.unpack(zip, "test.txt", cache), StandardCharsets.UTF_8) == "This is cached"
+    }
+
+    def "central directory cache reads a replaced zip again"() {
+        given:
+            def first = File.createTempDir()
+            def second = File.createTempDir()
+            def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+            def cache = CentralDirectoryCache.getInstance(SharedServiceManager.get(Mock(Gradle)))
+            new File(first, "first.txt").text = "First"
+            new File(second, "second.txt").text = "Second"
+
+        when:
+            ZipUtils.pack(first.toPath(), zip)
+            def containedFirst = ZipUtils.contains(zip, "first.txt", cache)
+            def cachedZip = RawZipFile.open(zip, cache)
+            cachedZip.close()
+            ZipUtils.pack(second.toPath(), zip)
+            def replacedZip = RawZipFile.open(zip, cache)
+            replacedZip.close()
+
+        then:
+            containedFirst
+            !replacedZip.getEntries().is(cachedZip.getEntries())
+            !ZipUtils.contains(zip, "first.txt", cache)
+            ZipUtils.contains(zip, "second.txt", cache)
+            new String(ZipUtils.unpack(zip, "second.txt", cache), StandardCharsets.UTF_8) == "Second"
+            ZipUtils.unpackNullable(zip, "first.txt", cache) == null
+    }
+
     def "transform string"() {
         given:
             def dir = File.createTempDir()
@@ -103,6 +183,96 @@ class ZipUtilsTest extends Specification {
             new String(ZipUtils.unpack(zip, "test2.txt"), StandardCharsets.UTF_8) == "This has been added"
     }
 
+    def "rewrite"() {
+        given:
+            def dir = File.createTempDir()
+            def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+            new File(dir, "test.txt").text = "This will be transformed"
+            new File(dir, "untouched.txt").text = "This is untouched"
+            new File(dir, "replaced.txt").text = "This will be replaced"
+
+        when:
+            ZipUtils.pack(dir.toPath(), zip)
+            def transformed = ZipUtils.rewrite(zip, [
+                    "test.txt": new ZipUtils.UnsafeUnaryOperator<byte[]>() {
+                        @Override
+                        byte[] apply(byte[] arg) throws IOException {
+                            return new String(arg, StandardCharsets.UTF_8).toUpperCase().bytes
+                        }
+                    },
+                    "missing.txt": new ZipUtils.UnsafeUnaryOperator<byte[]>() {
+                        @Override
+                        byte[] apply(byte[] arg) throws IOException {
+                            throw new IllegalStateException()
+                        }
+                    }
+            ], [
+                    new Pair<String, byte[]>("replaced.txt", "This has been replaced".bytes),
+                    new Pair<String, byte[]>("added/test.txt", "This has been added".bytes)
+            ])
+
+        then:
+            transformed == 1
+            new String(ZipUtils.unpack(zip, "test.txt"), StandardCharsets.UTF_8) == "THIS WILL BE TRANSFORMED"
+            new String(ZipUtils.unpack(zip, "untouched.txt"), StandardCharsets.UTF_8) == "This is untouched"
+            new String(ZipUtils.unpack(zip, "replaced.txt"), StandardCharsets.UTF_8) == "This has been replaced"
+            new String(ZipUtils.unpack(zip, "added/test.txt"), StandardCharsets.UTF_8) == "This has been added"
+            !ZipUtils.contains(zip, "missing.txt")
+    }
+
+    def "raw copy keeps the version made by"() {
+        given:
+            def source = Files.createTempDirectory("loom-zip-test").resolve("source.zip")
+            def output = source.resolveSibling("output.zip")
+            ZipUtils.add(source, "run.sh", "#!/bin/sh")
+            // Made by unix (3) with zip 3.0, as an executable file
+            setCentralHeader(source, 0x031E, 0100755 << 16)
+
+        when:
+            def sourceZip = RawZipFile.open(source)
+            def writer = RawZipWriter.create(output)
+            writer.copyRaw(sourceZip, sourceZip.getEntries()[0])
+            writer.close()
+            sourceZip.close()
+
+            def outputZip = RawZipFile.open(output)
+            def entry = outputZip.getEntries()[0]
+
+        then:
+            entry.versionMadeBy() == 0x031E
+            entry.externalAttributes() == 0100755 << 16
+            new String(outputZip.readAllBytes("run.sh"), StandardCharsets.UTF_8) == "#!/bin/sh"
+
+        cleanup:
+            outputZip?.close()
+    }
+
+    private static void setCentralHeader(Path zip, int versionMadeBy, int externalAttributes) {
+        def buffer = ByteBuffer.wrap(Files.readAllBytes(zip)).order(ByteOrder.LITTLE_ENDIAN)
+
+        for (int i = buffer.limit() - 4; i >= 0; i--) {
+            if (buffer.getInt(i) == 0x02014b50) {
+                buffer.putShort(i + 4, versionMadeBy as short)
+                buffer.putInt(i + 38, externalAttributes)
+                break
+            }
+        }
+
+        Files.write(zip, buffer.array())
+    }
+
+    def "add to new zip"() {
+        given:
+            def zip = Files.createTempDirectory("loom-zip-test").resolve("new.zip")
+
+        when:
+            ZipUtils.add(zip, "test.txt", "This is a new zip")
+
+        then:
+            Files.exists(zip)
+            new String(ZipUtils.unpack(zip, "test.txt"), StandardCharsets.UTF_8) == "This is a new zip"
+    }
+
     def "unpack all"() {
         given:
             def input = File.createTempDir()
@@ -43,7 +43,7 @@ class LayeredMappingSpecBuilderTest extends Specification {
             def layers = spec.layers()
         then:
             layers.size() == 2
-            spec.version == "layered+hash.2198"
+            spec.version == "layered+hash.2aae1b80509433ea"
             layers[0].class == IntermediaryMappingsSpec
             layers[1].class == MojangMappingsSpec
     }
@@ -58,7 +58,7 @@ class LayeredMappingSpecBuilderTest extends Specification {
             def layers = spec.layers()
             def parchment = layers[2] as ParchmentMappingsSpec
         then:
-            spec.version == "layered+hash.863752751"
+            spec.version == "layered+hash.7b6fbf599504d335"
             layers.size() == 3
             layers[0].class == IntermediaryMappingsSpec
             layers[1].class == MojangMappingsSpec
@@ -78,7 +78,7 @@ class LayeredMappingSpecBuilderTest extends Specification {
             def layers = spec.layers()
             def parchment = layers[2] as ParchmentMappingsSpec
         then:
-            spec.version == "layered+hash.863752757"
+            spec.version == "layered+hash.35f95cf4323db720"
             layers.size() == 3
             layers[0].class == IntermediaryMappingsSpec
             layers[1].class == MojangMappingsSpec
@@ -98,7 +98,7 @@ class LayeredMappingSpecBuilderTest extends Specification {
             def layers = spec.layers()
             def parchment = layers[2] as ParchmentMappingsSpec
         then:
-            spec.version == "layered+hash.1144427140"
+            spec.version == "layered+hash.9e12dcb04510a44c"
             layers.size() == 3
             layers[0].class == IntermediaryMappingsSpec
             layers[1].class == MojangMappingsSpec
@@ -114,13 +114,33 @@ class LayeredMappingSpecBuilderTest extends Specification {
             }
             def layers = spec.layers()
         then:
-            spec.version == "layered+hash.1133958200"
+            spec.version == "layered+hash.878d09f13335be18"
             layers.size() == 2
             layers[0].class == IntermediaryMappingsSpec
             layers[1].class == FileMappingsSpec
             ((layers[1] as FileMappingsSpec).fileSpec() as MavenFileSpec).dependencyNotation() == "net.fabricmc:yarn:1.18.1+build.1:v2"
     }
 
+    def "local files are hashed by their contents"() {
+        given:
+            def first = new File(File.createTempDir(), "mappings.tiny")
+            def second = new File(File.createTempDir(), "mappings.tiny")
+            first.text = "tiny\t2\t0\tintermediary\tnamed\n"
+            second.text = first.text
+
+        when:
+            def firstSpec = layered { mappings(first) }
+            def secondSpec = layered { mappings(second) }
+            second.text = first.text + "c\tnet/minecraft/class_1\tnet/minecraft/Entity\n"
+            def changedSpec = layered { mappings(second) }
+
+        then:
+            firstSpec.version == secondSpec.version
+            firstSpec.version != changedSpec.version
+            firstSpec.hash.length() == 64
+            firstSpec.version == "layered+hash." + firstSpec.hash.substring(0, 16)
+    }
+
     LayeredMappingSpec layered(@DelegatesTo(LayeredMappingSpecBuilderImpl) Closure cl) {
         LayeredMappingSpecBuilderImpl builder = new LayeredMappingSpecBuilderImpl()
         new ClosureAction(cl).execute(builder)
@@ -0,0 +1,55 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2022 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.util
+
+import net.fabricmc.mappingio.format.Tiny2Reader
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Small tiny v2 mappings shared by the unit tests, from intermediary to named.
+ */
+trait MappingsTestTrait {
+    Path getTestMappings() {
+        return Path.of("src/test/resources/mappings/test.tiny")
+    }
+
+    MemoryMappingTree readTestMappings() {
+        def mappingTree = new MemoryMappingTree()
+        testMappings.withReader { Tiny2Reader.read(it, mappingTree) }
+        return mappingTree
+    }
+
+    /**
+     * Copies the mappings into a new directory, for tests that write next to or modify the mappings file.
+     */
+    Path copyTestMappings() {
+        def mappings = File.createTempDir().toPath().resolve("mappings.tiny")
+        Files.copy(testMappings, mappings)
+        return mappings
+    }
+}